@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java_cup.runtime.Symbol;
+
+/** Writes lexed tokens in the binary token stream format.
+ *
+ * <p>
+ *
+ * This is the compact alternative to the text format printed by
+ * Utilities.dumpToken, selected with the <code>-b</code> flag.  The
+ * parser reads it back with BinaryTokenReader, so tokens are neither
+ * formatted and escaped here nor lexed a second time there.
+ *
+ * <p>
+ *
+ * A stream starts with the four bytes of MAGIC, followed by
+ * records.  All numbers are unsigned LEB128 varints, and a string is
+ * its length followed by its characters, each as a varint.  A record
+ * starts with a kind:
+ *
+ * <ul>
+ * <li> STRINGS: for the id, int and string tables in that order, a
+ *      count followed by that many strings.  These are the symbols
+ *      added to each table since the last STRINGS record, in index
+ *      order, so the reader can number them the same way.
+ * <li> NAME: the string table index of the name of the file whose
+ *      tokens follow.
+ * <li> anything below FIRST_RECORD is a token code from
+ *      TokenConstants.  It is followed by the change in line number
+ *      since the previous token, zigzag encoded, and then by the
+ *      token's value: a table index for INT_CONST, TYPEID, OBJECTID
+ *      and STR_CONST, 0 or 1 for BOOL_CONST, and the message string
+ *      for ERROR.
+ * </ul>
+ *
+ * The tokens of a file are buffered until endFile, so that the
+ * symbols they refer to can be written once, ahead of them.
+ *
+ * @see Lexer
+ * */
+class BinaryTokenWriter {
+    /** The first bytes of every binary token stream */
+    static final byte[] MAGIC = { 0, 'C', 'T', 'K' };
+
+    /** Record kinds; smaller kinds are token codes */
+    static final int FIRST_RECORD = 64;
+    static final int STRINGS = 64;
+    static final int NAME = 65;
+
+    private OutputStream out;
+    private CompilationContext ctx;
+
+    /** The encoded tokens of the current file */
+    private byte[] buf = new byte[4096];
+    private int len = 0;
+
+    private AbstractSymbol filename;
+    private int lineno = 0;
+
+    /** The number of symbols of each table already written */
+    private int ids = 0;
+    private int ints = 0;
+    private int strs = 0;
+
+    /** Starts a binary token stream on out, for the tokens of the
+     * given compilation. */
+    public BinaryTokenWriter(OutputStream out, CompilationContext ctx) throws IOException {
+	this.out = out;
+	this.ctx = ctx;
+	out.write(MAGIC);
+    }
+
+    /** Starts the tokens of a new file.
+     *
+     * @param filename the name of the file, from the string table
+     * */
+    public void beginFile(AbstractSymbol filename) {
+	this.filename = filename;
+	len = 0;
+    }
+
+    /** Adds a token to the current file.
+     *
+     * @param lineno the line the token is on
+     * @param s the token
+     * */
+    public void token(int lineno, Symbol s) {
+	int delta = lineno - this.lineno;
+	this.lineno = lineno;
+	writeInt(s.sym);
+	writeInt((delta << 1) ^ (delta >> 31));
+
+	switch (s.sym) {
+	case TokenConstants.INT_CONST:
+	case TokenConstants.TYPEID:
+	case TokenConstants.OBJECTID:
+	case TokenConstants.STR_CONST:
+	    writeInt(((AbstractSymbol)s.value).index);
+	    break;
+	case TokenConstants.BOOL_CONST:
+	    writeInt(((Boolean)s.value).booleanValue() ? 1 : 0);
+	    break;
+	case TokenConstants.ERROR:
+	    writeString(s.value.toString());
+	    break;
+	}
+    }
+
+    /** Writes the new symbols, the file name and the tokens of the
+     * current file, and flushes the stream.
+     * */
+    public void endFile() throws IOException {
+	byte[] tokens = buf;
+	int n = len;
+	buf = new byte[256];
+	len = 0;
+	writeInt(STRINGS);
+	ids = writeSymbols(ctx.idtable, ids);
+	ints = writeSymbols(ctx.inttable, ints);
+	strs = writeSymbols(ctx.stringtable, strs);
+	writeInt(NAME);
+	writeInt(filename.index);
+	out.write(buf, 0, len);
+	out.write(tokens, 0, n);
+	out.flush();
+	buf = tokens;
+	len = 0;
+    }
+
+    /** Flushes the stream.  endFile flushes the tokens of each file,
+     * so this is only needed for the magic number of a stream with no
+     * files.
+     * */
+    public void flush() throws IOException {
+	out.flush();
+    }
+
+    /** Encodes the symbols of tbl from index first on, and returns
+     * the index following them.
+     * */
+    private int writeSymbols(AbstractTable tbl, int first) {
+	int size = tbl.size();
+	writeInt(size - first);
+	for (int i = first; i < size; i++) {
+	    writeString(tbl.lookup(i).getString());
+	}
+	return size;
+    }
+
+    private void writeString(String s) {
+	writeInt(s.length());
+	for (int i = 0; i < s.length(); i++) {
+	    writeInt(s.charAt(i));
+	}
+    }
+
+    private void writeInt(int v) {
+	if (len + 5 > buf.length) {
+	    byte[] b = new byte[2 * buf.length];
+	    System.arraycopy(buf, 0, b, 0, len);
+	    buf = b;
+	}
+	while ((v & ~0x7f) != 0) {
+	    buf[len++] = (byte)((v & 0x7f) | 0x80);
+	    v >>>= 7;
+	}
+	buf[len++] = (byte)v;
+    }
+}
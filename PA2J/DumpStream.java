@@ -0,0 +1,242 @@
+import java.io.PrintStream;
+
+/** A print stream for the text dumps of tokens and trees that buffers
+ * its output in a character array.
+ *
+ * <p>
+ *
+ * Printing copies characters into the buffer, without building strings
+ * (integers are formatted in place), and the buffer is written to the
+ * underlying stream when it fills up and on flush, as bytes if it is
+ * all ASCII.  Any other characters are printed through the underlying
+ * stream, so the bytes are the ones it would have written.  Unlike
+ * System.out this never flushes on a newline, so flush must be called
+ * before the output is needed, e.g. before exiting.
+ *
+ * <p>
+ *
+ * A DumpStream is not safe for use by more than one thread.
+ *
+ * @see Utilities#dumpToken
+ * */
+class DumpStream extends PrintStream {
+    private static final String NEWLINE = System.getProperty("line.separator");
+
+    private final PrintStream out;
+    private final char[] chars = new char[8192];
+    private final byte[] bytes = new byte[8192];
+    private int len = 0;
+
+    /** Creates a buffered stream that writes to out. */
+    public DumpStream(PrintStream out) {
+	super(out);
+	this.out = out;
+    }
+
+    /** Writes the buffer to the underlying stream.
+     *
+     * @param all whether to write a last character that may be the
+     * first half of a surrogate pair
+     * */
+    private void drain(boolean all) {
+	int i = 0;
+	while (i < len && chars[i] < 0x80) {
+	    bytes[i] = (byte)chars[i];
+	    i++;
+	}
+	out.write(bytes, 0, i);
+	int keep = 0;
+	if (i < len) {
+	    // keep half of a surrogate pair for the next drain
+	    if (!all && Character.isHighSurrogate(chars[len - 1])) {
+		keep = 1;
+	    }
+	    out.print(new String(chars, i, len - keep - i));
+	}
+	if (keep > 0) {
+	    chars[0] = chars[len - 1];
+	}
+	len = keep;
+    }
+
+    /** Makes room for n characters, n at most the size of the buffer */
+    private void reserve(int n) {
+	if (len + n > chars.length) {
+	    drain(false);
+	}
+    }
+
+    public void print(char c) {
+	reserve(1);
+	chars[len++] = c;
+    }
+
+    public void print(String s) {
+	if (s == null) {
+	    s = "null";
+	}
+	append(s, 0, s.length());
+    }
+
+    public void print(int i) {
+	if (i == Integer.MIN_VALUE) {
+	    print(String.valueOf(i));
+	    return;
+	}
+	reserve(11);
+	if (i < 0) {
+	    chars[len++] = '-';
+	    i = -i;
+	}
+	int digits = 1;
+	for (int t = i; t >= 10; t /= 10) {
+	    digits++;
+	}
+	for (int p = len + digits - 1; p >= len; p--) {
+	    chars[p] = (char)('0' + i % 10);
+	    i /= 10;
+	}
+	len += digits;
+    }
+
+    public void print(boolean b) {
+	print(b ? "true" : "false");
+    }
+
+    public void print(long l) {
+	print(String.valueOf(l));
+    }
+
+    public void print(float f) {
+	print(String.valueOf(f));
+    }
+
+    public void print(double d) {
+	print(String.valueOf(d));
+    }
+
+    public void print(char[] s) {
+	for (int i = 0; i < s.length; ) {
+	    if (len == chars.length) {
+		drain(false);
+	    }
+	    int n = Math.min(s.length - i, chars.length - len);
+	    System.arraycopy(s, i, chars, len, n);
+	    len += n;
+	    i += n;
+	}
+    }
+
+    public void print(Object o) {
+	print(String.valueOf(o));
+    }
+
+    public void println() {
+	print(NEWLINE);
+    }
+
+    public void println(char c) {
+	print(c);
+	println();
+    }
+
+    public void println(String s) {
+	print(s);
+	println();
+    }
+
+    public void println(int i) {
+	print(i);
+	println();
+    }
+
+    public void println(boolean b) {
+	print(b);
+	println();
+    }
+
+    public void println(long l) {
+	print(l);
+	println();
+    }
+
+    public void println(float f) {
+	print(f);
+	println();
+    }
+
+    public void println(double d) {
+	print(d);
+	println();
+    }
+
+    public void println(char[] s) {
+	print(s);
+	println();
+    }
+
+    public void println(Object o) {
+	print(o);
+	println();
+    }
+
+    public PrintStream append(char c) {
+	print(c);
+	return this;
+    }
+
+    public PrintStream append(CharSequence csq) {
+	print(String.valueOf(csq));
+	return this;
+    }
+
+    /** Prints characters start to end of csq, copying them straight
+     * into the buffer if csq is a String. */
+    public PrintStream append(CharSequence csq, int start, int end) {
+	if (csq == null) {
+	    csq = "null";
+	}
+	if (!(csq instanceof String)) {
+	    for (int i = start; i < end; i++) {
+		print(csq.charAt(i));
+	    }
+	    return this;
+	}
+	String s = (String)csq;
+	while (start < end) {
+	    if (len == chars.length) {
+		drain(false);
+	    }
+	    int n = Math.min(end - start, chars.length - len);
+	    s.getChars(start, start + n, chars, len);
+	    len += n;
+	    start += n;
+	}
+	return this;
+    }
+
+    public void write(int b) {
+	drain(true);
+	out.write(b);
+    }
+
+    public void write(byte[] buf, int off, int n) {
+	drain(true);
+	out.write(buf, off, n);
+    }
+
+    public void flush() {
+	drain(true);
+	out.flush();
+    }
+
+    public void close() {
+	drain(true);
+	out.close();
+    }
+
+    public boolean checkError() {
+	flush();
+	return out.checkError();
+    }
+}
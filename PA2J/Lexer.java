@@ -19,9 +19,19 @@ ON AN "AS IS" BASIS, AND THE UNIVERSITY OF CALIFORNIA HAS NO OBLIGATION TO
 PROVIDE MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
 */
 
-import java.io.FileReader;
+import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java_cup.runtime.Symbol;
 
 /** The lexer driver class */
@@ -29,25 +39,270 @@ class Lexer {
 
     /** Loops over lexed tokens, printing them out to the console */
     public static void main(String[] args) {
-	args = Flags.handleFlags(args);
+	int status = main(args, null, System.in, System.out, System.err);
+	if (status != 0) {
+	    System.exit(status);
+	}
+    }
+
+    /** Lexes the files named on the command line, taking relative
+     * file names from the given directory
+     *
+     * @param args the command line
+     * @param directory the directory, or null for the current one
+     * @param in the standard input, which the lexer does not read
+     * @param out the stream the tokens are written to
+     * @param err the stream errors are reported on
+     * @return the exit status, 0 if the files were lexed
+     * */
+    static int main(String[] args, File directory,
+		    InputStream in, PrintStream out, PrintStream err) {
+	try {
+	    lex(args, new CompilationContext(directory, in, out, err));
+	    return 0;
+	} catch (CompilationHalted ex) {
+	    ex.printFatal(err);
+	    return ex.status;
+	}
+    }
+
+    /** Does the work of main, which catches the CompilationHalted
+     * that stops it */
+    private static void lex(String[] args, CompilationContext ctx) {
+	args = ctx.flags.handleFlags(args);
+
+	if (ctx.flags.parallel) {
+	    lexParallel(args, ctx);
+	    return;
+	}
+
+	if (ctx.flags.binary) {
+	    writeBinary(args, ctx);
+	    return;
+	}
+
+	DumpStream out = new DumpStream(ctx.out);
+	try {
+	    for (int i = 0; i < args.length; i++) {
+		try {
+		    char[] text = Utilities.readSource(ctx.file(args[i]));
+		    
+		    out.print("#name \"");
+		    out.print(args[i]);
+		    out.println("\"");
+		    CoolLexer lexer = new CoolLexer(text, ctx);
+		    lexer.set_filename(args[i]);
+		    Symbol s;
+		    while ((s = lexer.next_token()).sym != TokenConstants.EOF) {
+			Utilities.dumpToken(out, lexer.get_curr_lineno(), s);
+		    }
+		} catch (FileNotFoundException ex) {
+		    out.flush();
+		    Utilities.fatalError("Could not open input file " + args[i]);
+		} catch (IOException ex) {
+		    out.flush();
+		    Utilities.fatalError("Unexpected exception in lexer");
+		}
+	    }
+	} finally {
+	    out.flush();
+	}
+    }
+
+    /** Loops over lexed tokens, writing them to the console in the
+     * binary token stream format
+     *
+     * @see BinaryTokenWriter
+     * */
+    private static void writeBinary(String[] args, CompilationContext ctx) {
+	BinaryTokenWriter out = null;
+	try {
+	    out = new BinaryTokenWriter(new BufferedOutputStream(ctx.out), ctx);
+	} catch (IOException ex) {
+	    Utilities.fatalError("Unexpected exception in lexer");
+	}
 
 	for (int i = 0; i < args.length; i++) {
-	    FileReader file = null;
 	    try {
-		file = new FileReader(args[i]);
-		
-		System.out.println("#name \"" + args[i] + "\"");
-		CoolLexer lexer = new CoolLexer(file);
+		char[] text = Utilities.readSource(ctx.file(args[i]));
+
+		CoolLexer lexer = new CoolLexer(text, ctx);
 		lexer.set_filename(args[i]);
+		out.beginFile(lexer.curr_filename());
 		Symbol s;
 		while ((s = lexer.next_token()).sym != TokenConstants.EOF) {
-		    Utilities.dumpToken(System.out, lexer.get_curr_lineno(), s);
+		    out.token(lexer.get_curr_lineno(), s);
 		}
+		out.endFile();
 	    } catch (FileNotFoundException ex) {
 		Utilities.fatalError("Could not open input file " + args[i]);
 	    } catch (IOException ex) {
 		Utilities.fatalError("Unexpected exception in lexer");
 	    }
 	}
+	try {
+	    out.flush();
+	} catch (IOException ex) {
+	    Utilities.fatalError("Unexpected exception in lexer");
+	}
+    }
+
+    /** Lexes each file on a thread of its own, then prints the tokens
+     * of the files in command line order, in text or binary form.
+     *
+     * <p>
+     *
+     * Each file is lexed into string tables of its own.  Their symbols
+     * are then added to the tables of ctx file by file, in command line
+     * order, so every symbol gets the index it gets when the files are
+     * lexed one after another, and the output is the same.
+     * */
+    private static void lexParallel(String[] args, CompilationContext ctx) {
+	ExecutorService pool =
+	    Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+	List<Future<LexedFile>> files = new ArrayList<Future<LexedFile>>();
+	for (int i = 0; i < args.length; i++) {
+	    files.add(pool.submit(new LexedFile(args[i], ctx)));
+	}
+	pool.shutdown();
+
+	BinaryTokenWriter out = null;
+	DumpStream text = new DumpStream(ctx.out);
+	try {
+	    if (ctx.flags.binary) {
+		out = new BinaryTokenWriter(new BufferedOutputStream(ctx.out), ctx);
+	    }
+	    for (int i = 0; i < args.length; i++) {
+		LexedFile f = files.get(i).get();
+		if (f.error instanceof FileNotFoundException) {
+		    text.flush();
+		    Utilities.fatalError("Could not open input file " + args[i]);
+		} else if (f.error != null) {
+		    text.flush();
+		    Utilities.fatalError("Unexpected exception in lexer");
+		}
+		f.moveTo(ctx);
+		if (out != null) {
+		    out.beginFile(f.filename);
+		    for (int j = 0; j < f.count; j++) {
+			out.token(f.lines[j], f.tokens[j]);
+		    }
+		    out.endFile();
+		} else {
+		    text.print("#name \"");
+		    text.print(args[i]);
+		    text.println("\"");
+		    for (int j = 0; j < f.count; j++) {
+			Utilities.dumpToken(text, f.lines[j], f.tokens[j]);
+		    }
+		}
+	    }
+	    if (out != null) {
+		out.flush();
+	    }
+	} catch (IOException ex) {
+	    text.flush();
+	    Utilities.fatalError("Unexpected exception in lexer");
+	} catch (InterruptedException ex) {
+	    text.flush();
+	    Utilities.fatalError("Unexpected exception in lexer");
+	} catch (ExecutionException ex) {
+	    text.flush();
+	    if (ex.getCause() instanceof CompilationHalted) {
+		// the lexer of a file has reported why it stopped
+		throw (CompilationHalted)ex.getCause();
+	    }
+	    ex.getCause().printStackTrace(ctx.err);
+	    Utilities.fatalError("Unexpected exception in lexer");
+	} finally {
+	    text.flush();
+	}
+    }
+
+    /** The tokens of one file, lexed into string tables of their own */
+    static class LexedFile implements Callable<LexedFile> {
+	private String name;
+	private CompilationContext local;
+
+	/** The name of the file, in the string table */
+	AbstractSymbol filename;
+
+	/** The tokens, and the line each one is on */
+	Symbol[] tokens = new Symbol[256];
+	int[] lines = new int[256];
+	int count = 0;
+
+	/** The exception that stopped the lexer, if any */
+	IOException error;
+
+	LexedFile(String name, CompilationContext ctx) {
+	    this.name = name;
+	    this.local = new CompilationContext(ctx.directory, ctx.in, ctx.out, ctx.err);
+	}
+
+	/** Lexes the file */
+	public LexedFile call() {
+	    try {
+		char[] text = Utilities.readSource(local.file(name));
+		CoolLexer lexer = new CoolLexer(text, local);
+		lexer.set_filename(name);
+		filename = lexer.curr_filename();
+		Symbol s;
+		while ((s = lexer.next_token()).sym != TokenConstants.EOF) {
+		    if (count == tokens.length) {
+			Symbol[] t = new Symbol[2 * count];
+			System.arraycopy(tokens, 0, t, 0, count);
+			tokens = t;
+			int[] l = new int[2 * count];
+			System.arraycopy(lines, 0, l, 0, count);
+			lines = l;
+		    }
+		    tokens[count] = s;
+		    lines[count] = lexer.get_curr_lineno();
+		    count++;
+		}
+	    } catch (IOException ex) {
+		error = ex;
+	    }
+	    return this;
+	}
+
+	/** Replaces the symbols of this file by symbols of ctx, adding
+	 * them to its tables in the order they were added to the tables
+	 * of this file.
+	 * */
+	void moveTo(CompilationContext ctx) {
+	    AbstractSymbol[] ids = move(local.idtable, ctx.idtable);
+	    AbstractSymbol[] ints = move(local.inttable, ctx.inttable);
+	    AbstractSymbol[] strs = move(local.stringtable, ctx.stringtable);
+	    filename = strs[filename.index];
+	    for (int i = 0; i < count; i++) {
+		Symbol s = tokens[i];
+		switch (s.sym) {
+		case TokenConstants.TYPEID:
+		case TokenConstants.OBJECTID:
+		    s.value = ids[((AbstractSymbol)s.value).index];
+		    break;
+		case TokenConstants.INT_CONST:
+		    s.value = ints[((AbstractSymbol)s.value).index];
+		    break;
+		case TokenConstants.STR_CONST:
+		    s.value = strs[((AbstractSymbol)s.value).index];
+		    break;
+		}
+	    }
+	    local = null;
+	}
+
+	/** Adds the symbols of from to to, and returns the new symbols
+	 * by their index in from.
+	 * */
+	private static AbstractSymbol[] move(AbstractTable from, AbstractTable to) {
+	    AbstractSymbol[] syms = new AbstractSymbol[from.size()];
+	    for (int i = 0; i < syms.length; i++) {
+		syms[i] = to.addString(from.lookup(i).getString());
+	    }
+	    return syms;
+	}
     }
 }
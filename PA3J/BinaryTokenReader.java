@@ -0,0 +1,173 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java_cup.runtime.Symbol;
+
+/** Reads tokens in the binary token stream format written by the
+ * lexer's BinaryTokenWriter when it is run with <code>-b</code>.
+ *
+ * <p>
+ *
+ * This can be used in place of CoolTokenLexer.  Tokens arrive as a
+ * varint token code, a zigzag encoded line delta and a value, where
+ * identifiers and constants are indices of strings that precede them
+ * in the stream.  Those strings are added to the string tables once
+ * when they are read, so no token text is scanned twice.
+ *
+ * @see CoolTokenLexer
+ * */
+class BinaryTokenReader implements TokenScanner {
+    /** The first bytes of every binary token stream */
+    private static final byte[] MAGIC = { 0, 'C', 'T', 'K' };
+
+    /** Record kinds; smaller kinds are token codes */
+    private static final int FIRST_RECORD = 64;
+    private static final int STRINGS = 64;
+    private static final int NAME = 65;
+
+    private InputStream in;
+    private CompilationContext ctx;
+    private byte[] buf = new byte[8192];
+    private int pos = 0;
+    private int end = 0;
+
+    /** The symbols of the id, int and string tables of the writer,
+     * by the writer's indices */
+    private AbstractSymbol[] ids = new AbstractSymbol[64];
+    private AbstractSymbol[] ints = new AbstractSymbol[64];
+    private AbstractSymbol[] strs = new AbstractSymbol[64];
+    private int nids = 0;
+    private int nints = 0;
+    private int nstrs = 0;
+
+    private char[] chars = new char[256];
+
+    private AbstractSymbol filename;
+    private int line = 0;
+
+    /** Starts reading a binary token stream from in, for the given
+     * compilation. */
+    public BinaryTokenReader(InputStream in, CompilationContext ctx) throws IOException {
+	this.in = in;
+	this.ctx = ctx;
+	for (int i = 0; i < MAGIC.length; i++) {
+	    if (read() != MAGIC[i]) {
+		throw new IOException("not a binary token stream");
+	    }
+	}
+    }
+
+    public int curr_lineno() {
+	return line;
+    }
+
+    public AbstractSymbol curr_filename() {
+	return filename;
+    }
+
+    /** Returns the next token, or EOF at the end of the stream. */
+    public Symbol next_token() throws IOException {
+	for (;;) {
+	    int kind = read();
+	    if (kind < 0) {
+		return new Symbol(TokenConstants.EOF);
+	    }
+	    kind = finishInt(kind);
+	    switch (kind) {
+	    case STRINGS:
+		nids = readSymbols(ctx.idtable, nids, 0);
+		nints = readSymbols(ctx.inttable, nints, 1);
+		nstrs = readSymbols(ctx.stringtable, nstrs, 2);
+		break;
+	    case NAME:
+		filename = strs[readInt()];
+		break;
+	    default:
+		if (kind >= FIRST_RECORD) {
+		    throw new IOException("bad record in token stream: " + kind);
+		}
+		int delta = readInt();
+		line += (delta >>> 1) ^ -(delta & 1);
+		switch (kind) {
+		case TokenConstants.INT_CONST:
+		    return new Symbol(kind, ints[readInt()]);
+		case TokenConstants.TYPEID:
+		case TokenConstants.OBJECTID:
+		    return new Symbol(kind, ids[readInt()]);
+		case TokenConstants.STR_CONST:
+		    return new Symbol(kind, strs[readInt()]);
+		case TokenConstants.BOOL_CONST:
+		    return new Symbol(kind, readInt() != 0 ? Boolean.TRUE : Boolean.FALSE);
+		case TokenConstants.ERROR:
+		    int n = readChars();
+		    return new Symbol(kind, new String(chars, 0, n));
+		default:
+		    return new Symbol(kind);
+		}
+	    }
+	}
+    }
+
+    /** Reads count strings into table t and the symbol array of
+     * table number which, after its first n entries.
+     * */
+    private int readSymbols(AbstractTable t, int n, int which) throws IOException {
+	int count = readInt();
+	AbstractSymbol[] syms = which == 0 ? ids : which == 1 ? ints : strs;
+	if (n + count > syms.length) {
+	    AbstractSymbol[] s = new AbstractSymbol[Math.max(2 * syms.length, n + count)];
+	    System.arraycopy(syms, 0, s, 0, n);
+	    syms = s;
+	    if (which == 0) ids = s; else if (which == 1) ints = s; else strs = s;
+	}
+	for (int i = 0; i < count; i++) {
+	    int len = readChars();
+	    syms[n++] = t.addString(chars, 0, len);
+	}
+	return n;
+    }
+
+    /** Reads a string into chars and returns its length. */
+    private int readChars() throws IOException {
+	int len = readInt();
+	if (len > chars.length) {
+	    chars = new char[Math.max(2 * chars.length, len)];
+	}
+	for (int i = 0; i < len; i++) {
+	    chars[i] = (char)readInt();
+	}
+	return len;
+    }
+
+    private int readInt() throws IOException {
+	int b = read();
+	if (b < 0) {
+	    throw new IOException("unexpected end of token stream");
+	}
+	return finishInt(b);
+    }
+
+    /** Reads the rest of a varint whose first byte is b. */
+    private int finishInt(int b) throws IOException {
+	int v = b & 0x7f;
+	for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+	    b = read();
+	    if (b < 0) {
+		throw new IOException("unexpected end of token stream");
+	    }
+	    v |= (b & 0x7f) << shift;
+	}
+	return v;
+    }
+
+    private int read() throws IOException {
+	if (pos == end) {
+	    end = in.read(buf, 0, buf.length);
+	    pos = 0;
+	    if (end <= 0) {
+		end = 0;
+		return -1;
+	    }
+	}
+	return buf[pos++] & 0xff;
+    }
+}
@@ -33,6 +33,9 @@ class CgenClassTable extends SymbolTable {
     /** All classes in the program, represented as CgenNode */
     private Vector nds;
 
+    /** The compilation whose program is coded */
+    final CompilationContext ctx;
+
     /** This is the stream to which assembly instructions are output */
     private PrintStream str;
 
@@ -119,17 +122,17 @@ class CgenClassTable extends SymbolTable {
 	str.println(CgenSupport.GLOBAL + "_MemMgr_INITIALIZER");
 	str.println("_MemMgr_INITIALIZER:");
 	str.println(CgenSupport.WORD 
-		    + CgenSupport.gcInitNames[Flags.cgen_Memmgr]);
+		    + CgenSupport.gcInitNames[ctx.flags.cgen_Memmgr]);
 
 	str.println(CgenSupport.GLOBAL + "_MemMgr_COLLECTOR");
 	str.println("_MemMgr_COLLECTOR:");
 	str.println(CgenSupport.WORD 
-		    + CgenSupport.gcCollectNames[Flags.cgen_Memmgr]);
+		    + CgenSupport.gcCollectNames[ctx.flags.cgen_Memmgr]);
 
 	str.println(CgenSupport.GLOBAL + "_MemMgr_TEST");
 	str.println("_MemMgr_TEST:");
 	str.println(CgenSupport.WORD 
-		    + ((Flags.cgen_Memmgr_Test == Flags.GC_TEST) ? "1" : "0"));
+		    + ((ctx.flags.cgen_Memmgr_Test == Flags.GC_TEST) ? "1" : "0"));
     }
 
     /** Emits code to reserve space for and initialize all of the
@@ -141,11 +144,11 @@ class CgenClassTable extends SymbolTable {
      * inttable and producing code for each entry. */
     private void codeConstants() {
 	// Add constants that are required by the code generator.
-	AbstractTable.stringtable.addString("");
-	AbstractTable.inttable.addString("0");
+	ctx.stringtable.addString("");
+	ctx.inttable.addString("0");
 
-	AbstractTable.stringtable.codeStringTable(stringclasstag, str);
-	AbstractTable.inttable.codeStringTable(intclasstag, str);
+	ctx.stringtable.codeStringTable(stringclasstag, ctx.inttable, str);
+	ctx.inttable.codeStringTable(intclasstag, str);
 	codeBools(boolclasstag);
     }
 
@@ -157,7 +160,7 @@ class CgenClassTable extends SymbolTable {
      * */
     private void installBasicClasses() {
 	AbstractSymbol filename 
-	    = AbstractTable.stringtable.addString("<basic class>");
+	    = ctx.stringtable.addString("<basic class>");
 	
 	// A few special class names are installed in the lookup table
 	// but not the class list.  Thus, these classes exist, but are
@@ -354,8 +357,8 @@ class CgenClassTable extends SymbolTable {
     }
 
     private void installClasses(Classes cs) {
-        for (Enumeration e = cs.getElements(); e.hasMoreElements(); ) {
-	    installClass(new CgenNode((Class_)e.nextElement(), 
+        for (Class_ c : cs) {
+	    installClass(new CgenNode(c, 
 				       CgenNode.NotBasic, this));
         }
     }
@@ -373,7 +376,8 @@ class CgenClassTable extends SymbolTable {
     }
 
     /** Constructs a new class table and invokes the code generator */
-    public CgenClassTable(Classes cls, PrintStream str) {
+    public CgenClassTable(CompilationContext ctx, Classes cls, PrintStream str) {
+	this.ctx = ctx;
 	nds = new Vector();
 
 	this.str = str;
@@ -383,7 +387,7 @@ class CgenClassTable extends SymbolTable {
 	boolclasstag =   0 /* Change to your Bool class tag here */;
 
 	enterScope();
-	if (Flags.cgen_debug) System.out.println("Building CgenClassTable");
+	if (ctx.flags.cgen_debug) ctx.out.println("Building CgenClassTable");
 	
 	installBasicClasses();
 	installClasses(cls);
@@ -397,13 +401,13 @@ class CgenClassTable extends SymbolTable {
     /** This method is the meat of the code generator.  It is to be
         filled in programming assignment 5 */
     public void code() {
-	if (Flags.cgen_debug) System.out.println("coding global data");
+	if (ctx.flags.cgen_debug) ctx.out.println("coding global data");
 	codeGlobalData();
 
-	if (Flags.cgen_debug) System.out.println("choosing gc");
+	if (ctx.flags.cgen_debug) ctx.out.println("choosing gc");
 	codeSelectGc();
 
-	if (Flags.cgen_debug) System.out.println("coding constants");
+	if (ctx.flags.cgen_debug) ctx.out.println("coding constants");
 	codeConstants();
 
 	//                 Add your code to emit
@@ -411,7 +415,7 @@ class CgenClassTable extends SymbolTable {
 	//                   - class_nameTab
 	//                   - dispatch tables
 
-	if (Flags.cgen_debug) System.out.println("coding global text");
+	if (ctx.flags.cgen_debug) ctx.out.println("coding global text");
 	codeGlobalText();
 
 	//                 Add your code to emit
@@ -4,7 +4,7 @@
 import java_cup.runtime.Symbol;
 
 
-class CoolTokenLexer implements java_cup.runtime.Scanner {
+class CoolTokenLexer implements TokenScanner {
 	private final int YY_BUFFER_SIZE = 512;
 	private final int YY_F = -1;
 	private final int YY_NO_STATE = -1;
@@ -15,16 +15,24 @@ class CoolTokenLexer implements java_cup.runtime.Scanner {
 	private final int YY_BOL = 128;
 	private final int YY_EOF = 129;
 
-    int curr_lineno() {
+    public int curr_lineno() {
 	return line;
     }
+    // The compilation whose string tables the tokens go into
+    private CompilationContext ctx;
     private AbstractSymbol filename;
-    AbstractSymbol curr_filename() {
+    public AbstractSymbol curr_filename() {
 	return filename;
     }
     int prevstate;
     int line;
     StringBuffer buf = new StringBuffer();
+    // Adds the text of the current match to a string table, reading it
+    // straight from the lexer buffer
+    AbstractSymbol addText(AbstractTable table) {
+	return table.addString(yy_buffer, yy_buffer_start,
+			       yy_buffer_end - yy_buffer_start);
+    }
 	private java.io.BufferedReader yy_reader;
 	private int yy_buffer_index;
 	private int yy_buffer_read;
@@ -50,6 +58,23 @@ class CoolTokenLexer implements java_cup.runtime.Scanner {
 		yy_reader = new java.io.BufferedReader(new java.io.InputStreamReader(instream));
 	}
 
+	// Lexes a token stream for the given compilation.
+	CoolTokenLexer (java.io.Reader reader, CompilationContext ctx) {
+		this (reader);
+		this.ctx = ctx;
+	}
+
+	// Lexes a whole token stream held in memory.  The array becomes
+	// the lexer buffer as is, so it is never refilled or shifted
+	// until the end of input is reached.
+	CoolTokenLexer (char[] text, CompilationContext ctx) {
+		this (new java.io.StringReader(""), ctx);
+		if (text.length > 0) {
+			yy_buffer = text;
+			yy_buffer_read = text.length;
+		}
+	}
+
 	private CoolTokenLexer () {
 		yy_buffer = new char[YY_BUFFER_SIZE];
 		yy_buffer_read = 0;
@@ -529,7 +554,7 @@ class CoolTokenLexer implements java_cup.runtime.Scanner {
 		        try {
 			    line = Integer.parseInt(yytext().substring(1)); 
 			} catch (NumberFormatException ex) {
-			    ex.printStackTrace(System.err);
+			    ex.printStackTrace(ctx.err);
 			    line = 0;
 			}
 			yybegin(TOKEN); 
@@ -735,7 +760,7 @@ class CoolTokenLexer implements java_cup.runtime.Scanner {
 					case 54:
 						{ yybegin(YYINITIAL); 
 		        return new Symbol(TokenConstants.INT_CONST,
-			                  AbstractTable.inttable.addString(yytext())); }
+			                  addText(ctx.inttable)); }
 					case -55:
 						break;
 					case 55:
@@ -759,7 +784,7 @@ class CoolTokenLexer implements java_cup.runtime.Scanner {
 					case 59:
 						{ yybegin(YYINITIAL);
 		        return new Symbol(TokenConstants.TYPEID, 
-			                  AbstractTable.idtable.addString(yytext())); }
+			                  addText(ctx.idtable)); }
 					case -60:
 						break;
 					case 60:
@@ -769,11 +794,11 @@ class CoolTokenLexer implements java_cup.runtime.Scanner {
 					case 61:
 						{ yybegin(YYINITIAL);
 		        return new Symbol(TokenConstants.OBJECTID, 
-			                  AbstractTable.idtable.addString(yytext())); }
+			                  addText(ctx.idtable)); }
 					case -62:
 						break;
 					case 62:
-						{ buf.append(yytext()); }
+						{ buf.append(yy_buffer, yy_buffer_start, yylength()); }
 					case -63:
 						break;
 					case 63:
@@ -781,12 +806,12 @@ class CoolTokenLexer implements java_cup.runtime.Scanner {
 			switch(prevstate) {
 			case STR: 
 			    return new Symbol(TokenConstants.STR_CONST, 
-			                      AbstractTable.stringtable.addString(buf.toString())); 
+			                      ctx.stringtable.addString(buf)); 
 			case ERR:
 			    return new Symbol(TokenConstants.ERROR, 
 			                      buf.toString()); 
 			case YYINITIAL:
-			    filename = 	AbstractTable.stringtable.addString(buf.toString());
+			    filename = 	ctx.stringtable.addString(buf);
 			    break;
 			default:
 			    throw new Error("unknown state");
@@ -795,7 +820,7 @@ class CoolTokenLexer implements java_cup.runtime.Scanner {
 					case -64:
 						break;
 					case 64:
-						{ buf.append(yytext().substring(1)); }
+						{ buf.append(yy_buffer, yy_buffer_start + 1, yylength() - 1); }
 					case -65:
 						break;
 					case 65:
@@ -851,11 +876,11 @@ class CoolTokenLexer implements java_cup.runtime.Scanner {
 					case -78:
 						break;
 					case 79:
-						{ buf.append(yytext()); }
+						{ buf.append(yy_buffer, yy_buffer_start, yylength()); }
 					case -79:
 						break;
 					case 80:
-						{ buf.append(yytext().substring(1)); }
+						{ buf.append(yy_buffer, yy_buffer_start + 1, yylength() - 1); }
 					case -80:
 						break;
 					case 82:
@@ -867,7 +892,7 @@ class CoolTokenLexer implements java_cup.runtime.Scanner {
 					case -82:
 						break;
 					case 84:
-						{ buf.append(yytext()); }
+						{ buf.append(yy_buffer, yy_buffer_start, yylength()); }
 					case -83:
 						break;
 					case 86:
@@ -19,8 +19,19 @@ ON AN "AS IS" BASIS, AND THE UNIVERSITY OF CALIFORNIA HAS NO OBLIGATION TO
 PROVIDE MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
 */
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java_cup.runtime.Symbol;
 
 /** The parser driver class */
@@ -28,21 +39,134 @@ class Parser {
 
     /** Reads lexed tokens from consosle, and outputs the parse tree */
     public static void main(String[] args) {
-	args = Flags.handleFlags(args);
+	int status = main(args, null, System.in, System.out, System.err);
+	if (status != 0) {
+	    System.exit(status);
+	}
+    }
+
+    /** Parses the tokens on the console for the command line, taking
+     * relative file names from the given directory
+     *
+     * @param args the command line
+     * @param directory the directory, or null for the current one
+     * @param in the tokens to parse
+     * @param out the stream the tree is written to
+     * @param err the stream errors are reported on
+     * @return the exit status, 0 if the tokens were parsed
+     * */
+    static int main(String[] args, File directory,
+		    InputStream in, PrintStream out, PrintStream err) {
 	try {
-	    CoolTokenLexer lexer = new CoolTokenLexer(new InputStreamReader(System.in));
-	    CoolParser parser = new CoolParser(lexer);
-	    Symbol result = (Flags.parser_debug 
-			     ? parser.debug_parse()
-			     : parser.parse());
-	    if (parser.omerrs > 0) {
-		System.err.println("Compilation halted due to lex and parse errors");
-		System.exit(1);
+	    parse(args, new CompilationContext(directory, in, out, err));
+	    return 0;
+	} catch (CompilationHalted ex) {
+	    ex.printFatal(err);
+	    return ex.status;
+	}
+    }
+
+    /** Does the work of main, which catches the CompilationHalted
+     * that stops it */
+    private static void parse(String[] args, CompilationContext ctx) {
+	args = ctx.flags.handleFlags(args);
+	try {
+	    TokenScanner lexer = (ctx.flags.binary
+				  ? (TokenScanner) new BinaryTokenReader(ctx.in, ctx)
+				  : new CoolTokenLexer(new InputStreamReader(ctx.in), ctx));
+	    Program program = null;
+	    if (ctx.flags.parallel && !ctx.flags.parser_debug) {
+		TokenList tokens = new TokenList(lexer);
+		program = parseFiles(tokens, ctx.err);
+		lexer = tokens;
+	    }
+	    if (program == null) {
+		CoolParser parser = new CoolParser(lexer, ctx.err);
+		Symbol result = (ctx.flags.parser_debug 
+				 ? parser.debug_parse()
+				 : parser.parse());
+		if (parser.omerrs > 0) {
+		    ctx.err.println("Compilation halted due to lex and parse errors");
+		    throw new CompilationHalted(1);
+		}
+		program = (Program)result.value;
+	    }
+	    if (ctx.flags.binary) {
+		new BinaryASTWriter(new BufferedOutputStream(ctx.out), ctx)
+		    .writeProgram(program);
+	    } else {
+		DumpStream out = new DumpStream(ctx.out);
+		try {
+		    program.dump_with_types(out, 0);
+		} finally {
+		    out.flush();
+		}
 	    }
-	    ((Program)result.value).dump_with_types(System.out, 0);
+	} catch (CompilationHalted ex) {
+	    throw ex;
 	} catch (Exception ex) {
-	    ex.printStackTrace(System.err);
+	    ex.printStackTrace(ctx.err);
 	    Utilities.fatalError("Unexpected exception in parser");
 	}
     }
+
+    /** Parses the tokens of each file on a thread of its own, and
+     * joins the classes into one program, in the order of the files.
+     *
+     * <p>
+     *
+     * The classes and the line numbers are those a single parse of all
+     * the tokens gives (see TokenList).  Error messages are not, so if
+     * any file has a syntax error this gives up and returns null, and
+     * the caller parses the tokens again as a whole.
+     *
+     * @param tokens the tokens of all the files
+     * @param err the stream syntax errors are reported on
+     * @return the program, or null
+     * */
+    private static Program parseFiles(TokenList tokens, final PrintStream err)
+	throws InterruptedException {
+	TokenList[] files = tokens.files();
+	if (files.length < 2) {
+	    return null;
+	}
+	ExecutorService pool =
+	    Executors.newFixedThreadPool(Math.min(files.length,
+						  Runtime.getRuntime().availableProcessors()));
+	List<Future<Symbol>> results = new ArrayList<Future<Symbol>>();
+	for (int i = 0; i < files.length; i++) {
+	    final TokenList file = files[i];
+	    results.add(pool.submit(new Callable<Symbol>() {
+		public Symbol call() throws Exception {
+		    CoolParser parser = new CoolParser(file, err);
+		    parser.abortOnError = true;
+		    return parser.parse();
+		}
+	    }));
+	}
+	pool.shutdown();
+
+	Classes classes = null;
+	int lineNumber = 0;
+	for (int i = 0; i < files.length; i++) {
+	    programc program;
+	    try {
+		program = (programc)results.get(i).get().value;
+	    } catch (ExecutionException ex) {
+		// a syntax error, or some other failure the whole parse
+		// will run into again
+		pool.shutdownNow();
+		return null;
+	    }
+	    if (classes == null) {
+		classes = program.classes;
+	    } else {
+		for (Class_ c : program.classes) {
+		    classes.appendElement(c);
+		}
+	    }
+	    lineNumber = program.getLineNumber();
+	}
+	return new programc(lineNumber, classes);
+    }
 }
@@ -32,9 +32,11 @@ class StringTable extends AbstractTable {
 
     /** Generates code for all string constants in the string table.  
      * @param stringclasstag the class tag for String
+     * @param inttable the table of integer constants, which gets the
+     *        lengths of the strings
      * @param s the output stream
      * */
-    public void codeStringTable(int stringclasstag, PrintStream s) {
+    public void codeStringTable(int stringclasstag, IntTable inttable, PrintStream s) {
 	StringSymbol sym = null;
 	for (int i = tbl.size() - 1; i >= 0; i--) {
 	    try {
@@ -42,7 +44,7 @@ class StringTable extends AbstractTable {
 	    } catch (ArrayIndexOutOfBoundsException ex) {
 		Utilities.fatalError("Unexpected exception: " + ex);
 	    }
-	    sym.codeDef(stringclasstag, s);
+	    sym.codeDef(stringclasstag, inttable, s);
 	}
     }
 }
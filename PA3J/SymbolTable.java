@@ -19,9 +19,6 @@ ON AN "AS IS" BASIS, AND THE UNIVERSITY OF CALIFORNIA HAS NO OBLIGATION TO
 PROVIDE MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
 */
 
-import java.util.Stack;
-import java.util.Hashtable;
-
 /** Implements the symbol table data abstraction.
  *
  * <p>
@@ -48,36 +45,73 @@ import java.util.Hashtable;
  *
  * <p>
  *
- * Cool symbol tables are implemented using Java hashtables.  Each
- * hashtable represents a scope and associates a symbol with some
- * data. The ``data'' is whatever data the programmer wishes to
- * associate with each identifier.  An example illustrating the use of
- * symbol tables is in the file SymtabExample.java.
+ * Cool symbol tables keep only the visible definition of each symbol,
+ * in an array indexed by the symbol's index in its string table,
+ * together with the scope that definition was made in.  Every
+ * <code>addId</code> also records the definition it hides on an undo
+ * log, and <code>exitScope</code> rewinds the log back to the point
+ * where the scope was entered.  Thus lookups never search outer
+ * scopes, and entering a scope allocates nothing.  Because symbols are
+ * keyed by index, all symbols in one table must come from the same
+ * string table.  The ``data'' is whatever data the programmer wishes
+ * to associate with each identifier.  An example illustrating the use
+ * of symbol tables is in the file SymtabExample.java.
  *
  * @see AbstractSymbol
  * @see SymtabExample
  * */
 class SymbolTable {
-    private Stack tbl;
+    /** The visible definition of each symbol, by symbol index */
+    private Object[] defs;
+    /** The scope in which each visible definition was made */
+    private int[] scope;
+
+    /** The undo log: the symbol defined and the definition it hid */
+    private AbstractSymbol[] logSym;
+    private Object[] logInfo;
+    private int[] logScope;
+    private int logSize;
+
+    /** The undo log length at the entry of each open scope */
+    private int[] marks;
+    private int depth;
     
     /** Creates an empty symbol table. */
     public SymbolTable() {
-	tbl = new Stack();
+	defs = new Object[64];
+	scope = new int[64];
+	logSym = new AbstractSymbol[64];
+	logInfo = new Object[64];
+	logScope = new int[64];
+	marks = new int[16];
     }
     
     /** Enters a new scope. A scope must be entered before anything
      * can be added to the table.
      * */
     public void enterScope() {
-	tbl.push(new Hashtable());
+	if (depth == marks.length) {
+	    int[] m = new int[2 * depth];
+	    System.arraycopy(marks, 0, m, 0, depth);
+	    marks = m;
+	}
+	marks[depth++] = logSize;
     }
 
     /** Exits the most recently entered scope. */
     public void exitScope() {
-	if (tbl.empty()) {
+	if (depth == 0) {
 	    Utilities.fatalError("existScope: can't remove scope from an empty symbol table.");
 	}
-	tbl.pop();
+	int mark = marks[--depth];
+	while (logSize > mark) {
+	    logSize--;
+	    int i = logSym[logSize].index;
+	    defs[i] = logInfo[logSize];
+	    scope[i] = logScope[logSize];
+	    logSym[logSize] = null;
+	    logInfo[logSize] = null;
+	}
     }
 
     /** Adds a new entry to the symbol table.
@@ -86,10 +120,37 @@ class SymbolTable {
      * @param info the data asosciated with id
      * */
     public void addId(AbstractSymbol id, Object info) {
-	if (tbl.empty()) {
+	if (depth == 0) {
 	    Utilities.fatalError("addId: can't add a symbol without a scope.");
 	}
-	((Hashtable)tbl.peek()).put(id, info);
+	int i = id.index;
+	if (i >= defs.length) {
+	    int n = Math.max(2 * defs.length, i + 1);
+	    Object[] inf = new Object[n];
+	    int[] sc = new int[n];
+	    System.arraycopy(defs, 0, inf, 0, defs.length);
+	    System.arraycopy(scope, 0, sc, 0, scope.length);
+	    defs = inf;
+	    scope = sc;
+	}
+	if (logSize == logSym.length) {
+	    int n = 2 * logSize;
+	    AbstractSymbol[] ls = new AbstractSymbol[n];
+	    Object[] li = new Object[n];
+	    int[] lc = new int[n];
+	    System.arraycopy(logSym, 0, ls, 0, logSize);
+	    System.arraycopy(logInfo, 0, li, 0, logSize);
+	    System.arraycopy(logScope, 0, lc, 0, logSize);
+	    logSym = ls;
+	    logInfo = li;
+	    logScope = lc;
+	}
+	logSym[logSize] = id;
+	logInfo[logSize] = defs[i];
+	logScope[logSize] = scope[i];
+	logSize++;
+	defs[i] = info;
+	scope[i] = depth;
     }
 
     /**
@@ -101,16 +162,10 @@ class SymbolTable {
      * @return the info associated with sym, or null if not found
      * */
     public Object lookup(AbstractSymbol sym) {
-	if (tbl.empty()) {
+	if (depth == 0) {
 	    Utilities.fatalError("lookup: no scope in symbol table.");
 	}
-	// I break the abstraction here a bit by knowing that stack is 
-	// really a vector...
-	for (int i = tbl.size() - 1; i >= 0; i--) {
-	    Object info = ((Hashtable)tbl.elementAt(i)).get(sym);
-	    if (info != null) return info;
-	}
-	return null;
+	return sym.index < defs.length ? defs[sym.index] : null;
     }
 
     /** 
@@ -122,10 +177,11 @@ class SymbolTable {
      * @return the info associated with sym, or null if not found
      * */
     public Object probe(AbstractSymbol sym) {
-	if (tbl.empty()) {
+	if (depth == 0) {
 	    Utilities.fatalError("lookup: no scope in symbol table.");
 	}
-	return ((Hashtable)tbl.peek()).get(sym);
+	int i = sym.index;
+	return i < defs.length && scope[i] == depth ? defs[i] : null;
     }
     
     /** Gets the string representation of the symbol table.  
@@ -133,13 +189,30 @@ class SymbolTable {
      * @return the string rep
      * */
     public String toString() {
-	String res = "";
-	// I break the abstraction here a bit by knowing that stack is 
-	// really a vector...
-	for (int i = tbl.size() - 1, j = 0; i >= 0; i--, j++) {
-	    res += "Scope " + j + ": " + tbl.elementAt(i) + "\n";
+	StringBuffer res = new StringBuffer();
+	// Walk the undo log once from the top, undoing each definition on
+	// a copy of the table to recover the value it had in its scope.
+	// The first entry for a symbol in a scope is its last definition
+	// there; seen[i] is j + 1 once symbol i is printed for scope j.
+	Object[] cur = defs.clone();
+	int[] seen = new int[defs.length];
+	int k = logSize - 1;
+	for (int d = depth - 1, j = 0; d >= 0; d--, j++) {
+	    res.append("Scope " + j + ": {");
+	    boolean first = true;
+	    for (; k >= marks[d]; k--) {
+		int i = logSym[k].index;
+		if (seen[i] != j + 1) {
+		    seen[i] = j + 1;
+		    if (!first) res.append(", ");
+		    res.append(logSym[k] + "=" + cur[i]);
+		    first = false;
+		}
+		cur[i] = logInfo[k];
+	    }
+	    res.append("}\n");
 	}
-	return res;
+	return res.toString();
     }
 }
     
@@ -0,0 +1,136 @@
+import java.io.IOException;
+import java.util.Vector;
+import java_cup.runtime.Symbol;
+
+/** The tokens of a whole token stream, read into memory so that the
+ * tokens of each file can be parsed on their own.
+ *
+ * <p>
+ *
+ * The parser's actions take line numbers and file names from the
+ * scanner, which has by then read one token ahead.  So the last class
+ * of a file gets the line and file name of the first token of the next
+ * file, and the program gets those of the end of the stream.  A
+ * TokenList keeps, for each token, the line and file name the scanner
+ * had after reading it, and a slice of the list reports at its end
+ * those of the token that follows it, so parsing the slices gives the
+ * same trees as parsing the whole stream.
+ *
+ * @see Parser
+ * */
+class TokenList implements TokenScanner {
+    private Symbol[] tokens;
+    private int[] lines;
+    private AbstractSymbol[] filenames;
+    /** The number of tokens; entry count holds the line and file
+     * name at the end of the stream */
+    private int count = 0;
+
+    /** The slice this scanner returns, and the next token in it */
+    private int start;
+    private int end;
+    private int pos;
+
+    /** Reads all the tokens of a scanner */
+    public TokenList(TokenScanner scanner) throws IOException {
+	tokens = new Symbol[1024];
+	lines = new int[1025];
+	filenames = new AbstractSymbol[1025];
+	Symbol s;
+	while ((s = next(scanner)).sym != TokenConstants.EOF) {
+	    if (count == tokens.length) {
+		grow();
+	    }
+	    tokens[count] = s;
+	    lines[count] = scanner.curr_lineno();
+	    filenames[count] = scanner.curr_filename();
+	    count++;
+	}
+	lines[count] = scanner.curr_lineno();
+	filenames[count] = scanner.curr_filename();
+	start = pos = 0;
+	end = count;
+    }
+
+    private TokenList(TokenList list, int start, int end) {
+	this.tokens = list.tokens;
+	this.lines = list.lines;
+	this.filenames = list.filenames;
+	this.count = list.count;
+	this.start = this.pos = start;
+	this.end = end;
+    }
+
+    private static Symbol next(TokenScanner scanner) throws IOException {
+	try {
+	    return scanner.next_token();
+	} catch (IOException ex) {
+	    throw ex;
+	} catch (CompilationHalted ex) {
+	    throw ex;
+	} catch (Exception ex) {
+	    throw new IOException(ex.toString());
+	}
+    }
+
+    private void grow() {
+	Symbol[] t = new Symbol[2 * count];
+	System.arraycopy(tokens, 0, t, 0, count);
+	tokens = t;
+	int[] l = new int[2 * count + 1];
+	System.arraycopy(lines, 0, l, 0, count);
+	lines = l;
+	AbstractSymbol[] f = new AbstractSymbol[2 * count + 1];
+	System.arraycopy(filenames, 0, f, 0, count);
+	filenames = f;
+    }
+
+    /** Returns true if there are no tokens */
+    public boolean isEmpty() {
+	return count == 0;
+    }
+
+    /** Splits the tokens into one slice per input file, in the order
+     * of the stream.
+     *
+     * @return scanners for the slices
+     * */
+    public TokenList[] files() {
+	Vector slices = new Vector();
+	int from = 0;
+	for (int i = 1; i <= count; i++) {
+	    if (i == count || filenames[i] != filenames[from]) {
+		slices.addElement(new TokenList(this, from, i));
+		from = i;
+	    }
+	}
+	TokenList[] result = new TokenList[slices.size()];
+	slices.copyInto(result);
+	return result;
+    }
+
+    public int curr_lineno() {
+	return pos == start ? (start == 0 ? 0 : lines[start - 1]) : lines[pos - 1];
+    }
+
+    public AbstractSymbol curr_filename() {
+	return pos == start ? (start == 0 ? null : filenames[start - 1]) : filenames[pos - 1];
+    }
+
+    /** Returns the next token of the slice, or EOF at its end.  At the
+     * end, the line and file name become those after the token that
+     * follows the slice. */
+    public Symbol next_token() {
+	if (pos == end) {
+	    pos = end + 1;
+	    return new Symbol(TokenConstants.EOF);
+	}
+	if (pos > end) {
+	    return new Symbol(TokenConstants.EOF);
+	}
+	// the parser will not take a token it has already used, and the
+	// tokens may be parsed more than once
+	Symbol s = tokens[pos++];
+	return new Symbol(s.sym, s.left, s.right, s.value);
+    }
+}
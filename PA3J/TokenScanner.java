@@ -0,0 +1,13 @@
+/** A source of tokens for the parser, which also tracks the line
+ * number and file name of the most recent token.
+ *
+ * @see CoolTokenLexer
+ * @see BinaryTokenReader
+ * */
+interface TokenScanner extends java_cup.runtime.Scanner {
+    /** Returns the line number of the most recent token */
+    int curr_lineno();
+
+    /** Returns the name of the file the most recent token came from */
+    AbstractSymbol curr_filename();
+}
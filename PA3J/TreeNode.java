@@ -209,10 +209,10 @@ Here is a complete use of one member:
  Class_ c;
  AbstractSymbol p;
 
- c = new class(lineno, AbstractTable.idtable.add_string("Foo",3),
-                       AbstractTable.idtable.add_string("Bar"), 
+ c = new class(lineno, ctx.idtable.add_string("Foo",3),
+                       ctx.idtable.add_string("Bar"), 
 		       new Features(lineno),
-		       AbstractTable.stringtable.add_string("filename"));
+		       ctx.stringtable.add_string("filename"));
  p = c->get_parent();  // Sets p to the symbol for "Bar"
 
  ...
@@ -328,7 +328,9 @@ abstract class TreeNode {
      * This method is used internally by the generated AST classes
      * */
     protected void dump_line(PrintStream out, int n) {
-	out.println(Utilities.pad(n) + "#" + lineNumber);
+	out.print(Utilities.pad(n));
+	out.print('#');
+	out.println(lineNumber);
     }
     
 }
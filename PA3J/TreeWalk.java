@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Dumps expression trees, as text or in the binary AST format, with an
+ * explicit stack, so that the depth of an expression is limited by the
+ * heap and not by the Java stack.
+ *
+ * <p>
+ *
+ * Each of these walks is split into steps at a node.  Step 0 is called
+ * when the walk reaches the node, and each step does the work the
+ * recursive walk did up to the next child and returns that child, or
+ * finishes the node and returns null.  The driver keeps, for each node
+ * on the path from the root, the node and its next step, and walks the
+ * children a node returns before calling its next step.  So the nodes
+ * are visited, and their output comes, in the same order as in a
+ * recursive walk.
+ *
+ * <p>
+ *
+ * A step must not walk a child itself, e.g. by calling the
+ * <code>dump_with_types</code> or <code>dump_binary</code> of a child,
+ * or the depth would be back on the Java stack.
+ *
+ * @see Expression#dump_with_types(PrintStream, int)
+ */
+class TreeWalk {
+    /** A node whose walks are split into steps */
+    interface Node {
+        /**
+         * Does one step of dumping this node, with types, at indent n.
+         * The children are dumped at n + 2.
+         *
+         * @return the child to dump next, or null when done
+         */
+        Node dump_with_types(PrintStream out, int n, int step);
+
+        /**
+         * Does one step of writing this node in the binary AST format.
+         *
+         * @return the child to write next, or null when done
+         */
+        Node dump_binary(BinaryASTWriter out, int step) throws IOException;
+    }
+
+    private Node[] nodes = new Node[16];
+    private int[] steps = new int[16];
+    private int[] indents = new int[16];
+    private int size = 0;
+
+    private void push(Node node, int indent) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * size);
+            steps = Arrays.copyOf(steps, 2 * size);
+            indents = Arrays.copyOf(indents, 2 * size);
+        }
+        nodes[size] = node;
+        steps[size] = 0;
+        indents[size] = indent;
+        size++;
+    }
+
+    /** Dumps the tree under root, with types, at indent n. */
+    static void dump_with_types(Node root, PrintStream out, int n) {
+        TreeWalk w = new TreeWalk();
+        w.push(root, n);
+        while (w.size > 0) {
+            int top = w.size - 1;
+            Node child = w.nodes[top].dump_with_types(out, w.indents[top], w.steps[top]++);
+            if (child == null) {
+                w.nodes[--w.size] = null;
+            } else {
+                w.push(child, w.indents[top] + 2);
+            }
+        }
+    }
+
+    /** Writes the tree under root in the binary AST format. */
+    static void dump_binary(Node root, BinaryASTWriter out) throws IOException {
+        TreeWalk w = new TreeWalk();
+        w.push(root, 0);
+        while (w.size > 0) {
+            int top = w.size - 1;
+            Node child = w.nodes[top].dump_binary(out, w.steps[top]++);
+            if (child == null) {
+                w.nodes[--w.size] = null;
+            } else {
+                w.push(child, 0);
+            }
+        }
+    }
+}
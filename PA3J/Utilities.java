@@ -19,26 +19,39 @@ ON AN "AS IS" BASIS, AND THE UNIVERSITY OF CALIFORNIA HAS NO OBLIGATION TO
 PROVIDE MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
 */
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java_cup.runtime.Symbol;
 
 class Utilities {
-    // change this to true to enable table checking
-    private static final boolean checkTables = false;
-
     // sm: fixed an off-by-one error here; code assumed there were 80 spaces, but
     // in fact only 79 spaces were there; I've made it 80 now
     //                                         1         2         3         4         5         6         7
     //                               01234567890123456789012345678901234567890123456789012345678901234567890123456789
     private static String padding = "                                                                                "; // 80 spaces for padding
+    /** pads[n] is the padding of n spaces, so pad does not allocate */
+    private static final String[] pads = new String[padding.length() + 1];
+    static {
+	for (int i = 0; i < pads.length; i++) {
+	    pads[i] = padding.substring(0, i);
+	}
+    }
     
-    /** Prints error message and exits 
+    /** Stops the compilation with an error message, which is printed
+     * with the stack trace of this call to the error stream of the
+     * compilation, by whoever catches the CompilationHalted
      *
      * @param msg the error message
+     * @throws CompilationHalted always, with status 1
      * */
     public static void fatalError(String msg) {
-	(new Throwable(msg)).printStackTrace();
-	System.exit(1);
+	throw new CompilationHalted(1, new Throwable(msg));
     }
 
     /** Prints an appropritely escaped string
@@ -47,8 +60,15 @@ class Utilities {
      * @param s the string to print
      * */
     public static void printEscapedString(PrintStream str, String s) {
+	// characters that need no escape are printed in runs, start to i
+	int start = 0;
 	for (int i = 0; i < s.length(); i++) {
 	    char c = s.charAt(i);
+	    if (c >= 0x20 && c <= 0x7f && c != '\\' && c != '\"') {
+		continue;
+	    }
+	    str.append(s, start, i);
+	    start = i + 1;
 	    switch (c) {
 	    case '\\': str.print("\\\\"); break;
 	    case '\"': str.print("\\\""); break;
@@ -57,22 +77,19 @@ class Utilities {
 	    case '\b': str.print("\\b"); break;
 	    case '\f': str.print("\\f"); break;
 	    default:
-		if (c >= 0x20 && c <= 0x7f) {
-		    str.print(c);
-		} else {
-		    String octal = Integer.toOctalString(c);
-		    str.print('\\');
-		    switch (octal.length()) {
-		    case 1:
-			str.print('0');
-		    case 2:
-			str.print('0');
-		    default:
-			str.print(octal);
-		    }
+		String octal = Integer.toOctalString(c);
+		str.print('\\');
+		switch (octal.length()) {
+		case 1:
+		    str.print('0');
+		case 2:
+		    str.print('0');
+		default:
+		    str.print(octal);
 		}
 	    }
 	}
+	str.append(s, start, s.length());
     }
 
     /** Returns a string representation for a token
@@ -130,50 +147,42 @@ class Utilities {
 	}
     }
 
-    /** Prints a token to stderr
+    /** Prints a token to the specified stream
      *
+     * @param str the stream
      * @param s the token
      * */
-    public static void printToken(Symbol s) {
-	System.err.print(tokenToString(s));
+    public static void printToken(PrintStream str, Symbol s) {
+	str.print(tokenToString(s));
 
 	String val = null;
 
 	switch (s.sym) {
 	case TokenConstants.BOOL_CONST:
-	    System.err.print(" = " + s.value);
+	    str.print(" = " + s.value);
 	    break;
 	case TokenConstants.INT_CONST:
 	    val = ((AbstractSymbol)s.value).getString();
-	    System.err.print(" = " + val);
-	    if (checkTables) {
-		AbstractTable.inttable.lookup(val);
-	    }
+	    str.print(" = " + val);
 	    break;
 	case TokenConstants.TYPEID:
 	case TokenConstants.OBJECTID:
 	    val = ((AbstractSymbol)s.value).getString();
-	    System.err.print(" = " + val);
-	    if (checkTables) {
-		AbstractTable.idtable.lookup(val);
-	    }
+	    str.print(" = " + val);
 	    break;
 	case TokenConstants.STR_CONST: 
 	    val = ((AbstractSymbol)s.value).getString();
-	    System.err.print(" = \"");
-	    printEscapedString(System.err, val);
-	    System.err.print("\"");
-	    if (checkTables) {
-		AbstractTable.stringtable.lookup(val);
-	    }
+	    str.print(" = \"");
+	    printEscapedString(str, val);
+	    str.print("\"");
 	    break;
 	case TokenConstants.ERROR:
-	    System.err.print(" = \"");
-	    printEscapedString(System.err, s.value.toString());
-	    System.err.print("\"");
+	    str.print(" = \"");
+	    printEscapedString(str, s.value.toString());
+	    str.print("\"");
 	    break;
 	}
-	System.err.println("");
+	str.println("");
     }
 
     /** Dumps a token to the specified stream
@@ -182,37 +191,34 @@ class Utilities {
      * @param str the stream
      * */
     public static void dumpToken(PrintStream str, int lineno, Symbol s) {
-	str.print("#" + lineno + " " + tokenToString(s));
+	str.print('#');
+	str.print(lineno);
+	str.print(' ');
+	str.print(tokenToString(s));
 
 	String val = null;
 
 	switch (s.sym) {
 	case TokenConstants.BOOL_CONST:
-	    str.print(" " + s.value);
+	    str.print(' ');
+	    str.print(s.value);
 	    break;
 	case TokenConstants.INT_CONST:
 	    val = ((AbstractSymbol)s.value).getString();
-	    str.print(" " + val);
-	    if (checkTables) {
-		AbstractTable.inttable.lookup(val);
-	    }
+	    str.print(' ');
+	    str.print(val);
 	    break;
 	case TokenConstants.TYPEID:
 	case TokenConstants.OBJECTID:
 	    val = ((AbstractSymbol)s.value).getString();
-	    str.print(" " + val);
-	    if (checkTables) {
-		AbstractTable.idtable.lookup(val);
-	    }
+	    str.print(' ');
+	    str.print(val);
 	    break;
 	case TokenConstants.STR_CONST: 
 	    val = ((AbstractSymbol)s.value).getString();
 	    str.print(" \"");
 	    printEscapedString(str, val);
 	    str.print("\"");
-	    if (checkTables) {
-		AbstractTable.stringtable.lookup(val);
-	    }
 	    break;
 	case TokenConstants.ERROR:
 	    str.print(" \"");
@@ -231,7 +237,40 @@ class Utilities {
     public static String pad(int n) {
 	if (n > 80) return padding;
 	if (n < 0) return "";
-	return padding.substring(0, n);
+	return pads[n];
+    }
+
+    /** Reads the whole of a source file into a character array.
+     *
+     * The file is mapped into memory rather than read through a
+     * stream.  A file that is all ASCII is widened to characters
+     * directly; any other file is decoded in one pass with the default
+     * charset, as a FileReader would.
+     *
+     * @param file the file
+     * @return the characters of the file, filling the array exactly
+     * */
+    public static char[] readSource(File file) throws IOException {
+	FileInputStream in = new FileInputStream(file);
+	try {
+	    FileChannel ch = in.getChannel();
+	    ByteBuffer bytes = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+	    int n = bytes.remaining();
+	    char[] text = new char[n];
+	    for (int i = 0; i < n; i++) {
+		byte b = bytes.get(i);
+		if (b < 0) {
+		    CharBuffer chars = Charset.defaultCharset().decode(bytes);
+		    text = new char[chars.remaining()];
+		    chars.get(text);
+		    return text;
+		}
+		text[i] = (char)b;
+	    }
+	    return text;
+	} finally {
+	    in.close();
+	}
     }
 }
 
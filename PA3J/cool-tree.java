@@ -8,9 +8,8 @@
 
 
 
-import java.util.Enumeration;
+import java.io.IOException;
 import java.io.PrintStream;
-import java.util.Vector;
 
 
 /** Defines simple phylum Program */
@@ -19,8 +18,9 @@ abstract class Program extends TreeNode {
         super(lineNumber);
     }
     public abstract void dump_with_types(PrintStream out, int n);
-    public abstract void semant();
-    public abstract void cgen(PrintStream s);
+    public abstract void dump_binary(BinaryASTWriter out) throws IOException;
+    public abstract void semant(CompilationContext ctx);
+    public abstract void cgen(CompilationContext ctx, PrintStream s);
 
 }
 
@@ -31,6 +31,7 @@ abstract class Class_ extends TreeNode {
         super(lineNumber);
     }
     public abstract void dump_with_types(PrintStream out, int n);
+    public abstract void dump_binary(BinaryASTWriter out) throws IOException;
     public abstract AbstractSymbol getName();
     public abstract AbstractSymbol getParent();
     public abstract AbstractSymbol getFilename();
@@ -42,13 +43,13 @@ abstract class Class_ extends TreeNode {
 /** Defines list phylum Classes
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Classes extends ListNode {
+class Classes extends ListNode<Class_> {
     public final static Class elementClass = Class_.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Classes(int lineNumber, Vector elements) {
+    protected Classes(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Classes" list */
@@ -56,7 +57,7 @@ class Classes extends ListNode {
         super(lineNumber);
     }
     /** Appends "Class_" element to this list */
-    public Classes appendElement(TreeNode elem) {
+    public Classes appendElement(Class_ elem) {
         addElement(elem);
         return this;
     }
@@ -72,6 +73,7 @@ abstract class Feature extends TreeNode {
         super(lineNumber);
     }
     public abstract void dump_with_types(PrintStream out, int n);
+    public abstract void dump_binary(BinaryASTWriter out) throws IOException;
 
 }
 
@@ -79,13 +81,13 @@ abstract class Feature extends TreeNode {
 /** Defines list phylum Features
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Features extends ListNode {
+class Features extends ListNode<Feature> {
     public final static Class elementClass = Feature.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Features(int lineNumber, Vector elements) {
+    protected Features(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Features" list */
@@ -93,7 +95,7 @@ class Features extends ListNode {
         super(lineNumber);
     }
     /** Appends "Feature" element to this list */
-    public Features appendElement(TreeNode elem) {
+    public Features appendElement(Feature elem) {
         addElement(elem);
         return this;
     }
@@ -109,6 +111,7 @@ abstract class Formal extends TreeNode {
         super(lineNumber);
     }
     public abstract void dump_with_types(PrintStream out, int n);
+    public abstract void dump_binary(BinaryASTWriter out) throws IOException;
 
 }
 
@@ -116,13 +119,13 @@ abstract class Formal extends TreeNode {
 /** Defines list phylum Formals
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Formals extends ListNode {
+class Formals extends ListNode<Formal> {
     public final static Class elementClass = Formal.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Formals(int lineNumber, Vector elements) {
+    protected Formals(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Formals" list */
@@ -130,7 +133,7 @@ class Formals extends ListNode {
         super(lineNumber);
     }
     /** Appends "Formal" element to this list */
-    public Formals appendElement(TreeNode elem) {
+    public Formals appendElement(Formal elem) {
         addElement(elem);
         return this;
     }
@@ -141,19 +144,28 @@ class Formals extends ListNode {
 
 
 /** Defines simple phylum Expression */
-abstract class Expression extends TreeNode {
+abstract class Expression extends TreeNode implements TreeWalk.Node {
     protected Expression(int lineNumber) {
         super(lineNumber);
     }
     private AbstractSymbol type = null;                                 
     public AbstractSymbol get_type() { return type; }           
     public Expression set_type(AbstractSymbol s) { type = s; return this; } 
-    public abstract void dump_with_types(PrintStream out, int n);
+    /** Dumps this expression, with an explicit stack
+     * @see TreeWalk */
+    public void dump_with_types(PrintStream out, int n) {
+        TreeWalk.dump_with_types(this, out, n);
+    }
+    /** Writes this expression in the binary AST format, with an
+     * explicit stack
+     * @see TreeWalk */
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        TreeWalk.dump_binary(this, out);
+    }
     public void dump_type(PrintStream out, int n) {
-        if (type != null)
-            { out.println(Utilities.pad(n) + ": " + type.getString()); }
-        else
-            { out.println(Utilities.pad(n) + ": _no_type"); }
+        out.print(Utilities.pad(n));
+        out.print(": ");
+        out.println(type != null ? type.getString() : "_no_type");
     }
     public abstract void code(PrintStream s);
 
@@ -163,13 +175,13 @@ abstract class Expression extends TreeNode {
 /** Defines list phylum Expressions
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Expressions extends ListNode {
+class Expressions extends ListNode<Expression> {
     public final static Class elementClass = Expression.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Expressions(int lineNumber, Vector elements) {
+    protected Expressions(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Expressions" list */
@@ -177,7 +189,7 @@ class Expressions extends ListNode {
         super(lineNumber);
     }
     /** Appends "Expression" element to this list */
-    public Expressions appendElement(TreeNode elem) {
+    public Expressions appendElement(Expression elem) {
         addElement(elem);
         return this;
     }
@@ -188,11 +200,21 @@ class Expressions extends ListNode {
 
 
 /** Defines simple phylum Case */
-abstract class Case extends TreeNode {
+abstract class Case extends TreeNode implements TreeWalk.Node {
     protected Case(int lineNumber) {
         super(lineNumber);
     }
-    public abstract void dump_with_types(PrintStream out, int n);
+    /** Dumps this branch, with an explicit stack
+     * @see TreeWalk */
+    public void dump_with_types(PrintStream out, int n) {
+        TreeWalk.dump_with_types(this, out, n);
+    }
+    /** Writes this branch in the binary AST format, with an explicit
+     * stack
+     * @see TreeWalk */
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        TreeWalk.dump_binary(this, out);
+    }
 
 }
 
@@ -200,13 +222,13 @@ abstract class Case extends TreeNode {
 /** Defines list phylum Cases
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Cases extends ListNode {
+class Cases extends ListNode<Case> {
     public final static Class elementClass = Case.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Cases(int lineNumber, Vector elements) {
+    protected Cases(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Cases" list */
@@ -214,7 +236,7 @@ class Cases extends ListNode {
         super(lineNumber);
     }
     /** Appends "Case" element to this list */
-    public Cases appendElement(TreeNode elem) {
+    public Cases appendElement(Case elem) {
         addElement(elem);
         return this;
     }
@@ -237,6 +259,7 @@ class programc extends Program {
     public programc(int lineNumber, Classes a1) {
         super(lineNumber);
         classes = a1;
+        classes.trim();
     }
     public TreeNode copy() {
         return new programc(lineNumber, (Classes)classes.copy());
@@ -249,9 +272,18 @@ class programc extends Program {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_program");
-        for (Enumeration e = classes.getElements(); e.hasMoreElements(); ) {
-	    ((Class_)e.nextElement()).dump_with_types(out, n + 2);
+        out.print(Utilities.pad(n));
+        out.println("_program");
+        for (Class_ e : classes) {
+	    e.dump_with_types(out, n + 2);
+        }
+    }
+
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        out.writeNode(BinaryAST.PROGRAM, lineNumber);
+        out.writeLength(classes.getLength());
+        for (Class_ e : classes) {
+            e.dump_binary(out);
         }
     }
     /** This method is the entry point to the semantic checker.  You will
@@ -269,24 +301,25 @@ class programc extends Program {
     	errors. Part (2) can be done in a second stage when you want
 	to test the complete compiler.
     */
-    public void semant() {
+    public void semant(CompilationContext ctx) {
 	/* ClassTable constructor may do some semantic analysis */
-	ClassTable classTable = new ClassTable(classes);
+	ClassTable classTable = new ClassTable(ctx, classes);
 	
 	/* some semantic analysis code may go here */
 
 	if (classTable.errors()) {
-	    System.err.println("Compilation halted due to static semantic errors.");
-	    System.exit(1);
+	    ctx.err.println("Compilation halted due to static semantic errors.");
+	    throw new CompilationHalted(1);
 	}
     }
     /** This method is the entry point to the code generator.  All of the work
       * of the code generator takes place within CgenClassTable constructor.
+      * @param ctx the compilation
       * @param s the output stream 
       * @see CgenClassTable
       * */
-    public void cgen(PrintStream s) {
-	CgenClassTable codegen_classtable = new CgenClassTable(classes, s);
+    public void cgen(CompilationContext ctx, PrintStream s) {
+	CgenClassTable codegen_classtable = new CgenClassTable(ctx, classes, s);
     }
 
 }
@@ -313,6 +346,7 @@ class class_c extends Class_ {
         name = a1;
         parent = a2;
         features = a3;
+        features.trim();
         filename = a4;
     }
     public TreeNode copy() {
@@ -329,16 +363,32 @@ class class_c extends Class_ {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_class");
+        out.print(Utilities.pad(n));
+        out.println("_class");
         dump_AbstractSymbol(out, n + 2, name);
         dump_AbstractSymbol(out, n + 2, parent);
-        out.print(Utilities.pad(n + 2) + "\"");
+        out.print(Utilities.pad(n + 2));
+        out.print("\"");
         Utilities.printEscapedString(out, filename.getString());
-        out.println("\"\n" + Utilities.pad(n + 2) + "(");
-        for (Enumeration e = features.getElements(); e.hasMoreElements();) {
-	    ((Feature)e.nextElement()).dump_with_types(out, n + 2);
+        out.print("\"\n");
+        out.print(Utilities.pad(n + 2));
+        out.println("(");
+        for (Feature e : features) {
+	    e.dump_with_types(out, n + 2);
+        }
+        out.print(Utilities.pad(n + 2));
+        out.println(")");
+    }
+
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        out.writeNode(BinaryAST.CLASS, lineNumber);
+        out.writeSymbol(name);
+        out.writeSymbol(parent);
+        out.writeSymbol(filename);
+        out.writeLength(features.getLength());
+        for (Feature e : features) {
+            e.dump_binary(out);
         }
-        out.println(Utilities.pad(n + 2) + ")");
     }
     public AbstractSymbol getName()     { return name; }
     public AbstractSymbol getParent()   { return parent; }
@@ -368,6 +418,7 @@ class method extends Feature {
         super(lineNumber);
         name = a1;
         formals = a2;
+        formals.trim();
         return_type = a3;
         expr = a4;
     }
@@ -385,15 +436,27 @@ class method extends Feature {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_method");
+        out.print(Utilities.pad(n));
+        out.println("_method");
         dump_AbstractSymbol(out, n + 2, name);
-        for (Enumeration e = formals.getElements(); e.hasMoreElements();) {
-	    ((Formal)e.nextElement()).dump_with_types(out, n + 2);
+        for (Formal e : formals) {
+	    e.dump_with_types(out, n + 2);
         }
         dump_AbstractSymbol(out, n + 2, return_type);
 	expr.dump_with_types(out, n + 2);
     }
 
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        out.writeNode(BinaryAST.METHOD, lineNumber);
+        out.writeSymbol(name);
+        out.writeLength(formals.getLength());
+        for (Formal e : formals) {
+            e.dump_binary(out);
+        }
+        out.writeSymbol(return_type);
+        expr.dump_binary(out);
+    }
+
 }
 
 
@@ -430,12 +493,20 @@ class attr extends Feature {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_attr");
+        out.print(Utilities.pad(n));
+        out.println("_attr");
         dump_AbstractSymbol(out, n + 2, name);
         dump_AbstractSymbol(out, n + 2, type_decl);
 	init.dump_with_types(out, n + 2);
     }
 
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        out.writeNode(BinaryAST.ATTR, lineNumber);
+        out.writeSymbol(name);
+        out.writeSymbol(type_decl);
+        init.dump_binary(out);
+    }
+
 }
 
 
@@ -468,11 +539,18 @@ class formalc extends Formal {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_formal");
+        out.print(Utilities.pad(n));
+        out.println("_formal");
         dump_AbstractSymbol(out, n + 2, name);
         dump_AbstractSymbol(out, n + 2, type_decl);
     }
 
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        out.writeNode(BinaryAST.FORMAL, lineNumber);
+        out.writeSymbol(name);
+        out.writeSymbol(type_decl);
+    }
+
 }
 
 
@@ -507,12 +585,26 @@ class branch extends Case {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_branch");
-        dump_AbstractSymbol(out, n + 2, name);
-        dump_AbstractSymbol(out, n + 2, type_decl);
-	expr.dump_with_types(out, n + 2);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_branch");
+            dump_AbstractSymbol(out, n + 2, name);
+            dump_AbstractSymbol(out, n + 2, type_decl);
+            return expr;
+        }
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.BRANCH, lineNumber);
+            out.writeSymbol(name);
+            out.writeSymbol(type_decl);
+            return expr;
+        }
+        return null;
     }
 
 }
@@ -545,12 +637,26 @@ class assign extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_assign");
-        dump_AbstractSymbol(out, n + 2, name);
-	expr.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_assign");
+            dump_AbstractSymbol(out, n + 2, name);
+            return expr;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.ASSIGN, lineNumber);
+            out.writeSymbol(name);
+            return expr;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -586,6 +692,7 @@ class static_dispatch extends Expression {
         type_name = a2;
         name = a3;
         actual = a4;
+        actual.trim();
     }
     public TreeNode copy() {
         return new static_dispatch(lineNumber, (Expression)expr.copy(), copy_AbstractSymbol(type_name), copy_AbstractSymbol(name), (Expressions)actual.copy());
@@ -599,18 +706,43 @@ class static_dispatch extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_static_dispatch");
-	expr.dump_with_types(out, n + 2);
-        dump_AbstractSymbol(out, n + 2, type_name);
-        dump_AbstractSymbol(out, n + 2, name);
-        out.println(Utilities.pad(n + 2) + "(");
-        for (Enumeration e = actual.getElements(); e.hasMoreElements();) {
-	    ((Expression)e.nextElement()).dump_with_types(out, n + 2);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_static_dispatch");
+            return expr;
+        }
+        if (step == 1) {
+            dump_AbstractSymbol(out, n + 2, type_name);
+            dump_AbstractSymbol(out, n + 2, name);
+            out.print(Utilities.pad(n + 2));
+            out.println("(");
         }
-        out.println(Utilities.pad(n + 2) + ")");
-	dump_type(out, n);
+        if (step <= actual.getLength()) {
+            return actual.getNth(step - 1);
+        }
+        out.print(Utilities.pad(n + 2));
+        out.println(")");
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.STATIC_DISPATCH, lineNumber);
+            return expr;
+        }
+        if (step == 1) {
+            out.writeSymbol(type_name);
+            out.writeSymbol(name);
+            out.writeLength(actual.getLength());
+        }
+        if (step <= actual.getLength()) {
+            return actual.getNth(step - 1);
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -643,6 +775,7 @@ class dispatch extends Expression {
         expr = a1;
         name = a2;
         actual = a3;
+        actual.trim();
     }
     public TreeNode copy() {
         return new dispatch(lineNumber, (Expression)expr.copy(), copy_AbstractSymbol(name), (Expressions)actual.copy());
@@ -655,17 +788,41 @@ class dispatch extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_dispatch");
-	expr.dump_with_types(out, n + 2);
-        dump_AbstractSymbol(out, n + 2, name);
-        out.println(Utilities.pad(n + 2) + "(");
-        for (Enumeration e = actual.getElements(); e.hasMoreElements();) {
-	    ((Expression)e.nextElement()).dump_with_types(out, n + 2);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_dispatch");
+            return expr;
+        }
+        if (step == 1) {
+            dump_AbstractSymbol(out, n + 2, name);
+            out.print(Utilities.pad(n + 2));
+            out.println("(");
         }
-        out.println(Utilities.pad(n + 2) + ")");
-	dump_type(out, n);
+        if (step <= actual.getLength()) {
+            return actual.getNth(step - 1);
+        }
+        out.print(Utilities.pad(n + 2));
+        out.println(")");
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.DISPATCH, lineNumber);
+            return expr;
+        }
+        if (step == 1) {
+            out.writeSymbol(name);
+            out.writeLength(actual.getLength());
+        }
+        if (step <= actual.getLength()) {
+            return actual.getNth(step - 1);
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -710,13 +867,34 @@ class cond extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_cond");
-	pred.dump_with_types(out, n + 2);
-	then_exp.dump_with_types(out, n + 2);
-	else_exp.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_cond");
+            return pred;
+        case 1:
+            return then_exp;
+        case 2:
+            return else_exp;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.COND, lineNumber);
+            return pred;
+        case 1:
+            return then_exp;
+        case 2:
+            return else_exp;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -757,12 +935,30 @@ class loop extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_loop");
-	pred.dump_with_types(out, n + 2);
-	body.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_loop");
+            return pred;
+        case 1:
+            return body;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.LOOP, lineNumber);
+            return pred;
+        case 1:
+            return body;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -792,6 +988,7 @@ class typcase extends Expression {
         super(lineNumber);
         expr = a1;
         cases = a2;
+        cases.trim();
     }
     public TreeNode copy() {
         return new typcase(lineNumber, (Expression)expr.copy(), (Cases)cases.copy());
@@ -803,14 +1000,33 @@ class typcase extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_typcase");
-	expr.dump_with_types(out, n + 2);
-        for (Enumeration e = cases.getElements(); e.hasMoreElements();) {
-	    ((Case)e.nextElement()).dump_with_types(out, n + 2);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_typcase");
+            return expr;
         }
-	dump_type(out, n);
+        if (step <= cases.getLength()) {
+            return cases.getNth(step - 1);
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.TYPCASE, lineNumber);
+            return expr;
+        }
+        if (step == 1) {
+            out.writeLength(cases.getLength());
+        }
+        if (step <= cases.getLength()) {
+            return cases.getNth(step - 1);
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -837,6 +1053,7 @@ class block extends Expression {
     public block(int lineNumber, Expressions a1) {
         super(lineNumber);
         body = a1;
+        body.trim();
     }
     public TreeNode copy() {
         return new block(lineNumber, (Expressions)body.copy());
@@ -847,13 +1064,29 @@ class block extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_block");
-        for (Enumeration e = body.getElements(); e.hasMoreElements();) {
-	    ((Expression)e.nextElement()).dump_with_types(out, n + 2);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_block");
+        }
+        if (step < body.getLength()) {
+            return body.getNth(step);
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.BLOCK, lineNumber);
+            out.writeLength(body.getLength());
         }
-	dump_type(out, n);
+        if (step < body.getLength()) {
+            return body.getNth(step);
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -902,14 +1135,34 @@ class let extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_let");
-	dump_AbstractSymbol(out, n + 2, identifier);
-	dump_AbstractSymbol(out, n + 2, type_decl);
-	init.dump_with_types(out, n + 2);
-	body.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_let");
+            dump_AbstractSymbol(out, n + 2, identifier);
+            dump_AbstractSymbol(out, n + 2, type_decl);
+            return init;
+        case 1:
+            return body;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.LET, lineNumber);
+            out.writeSymbol(identifier);
+            out.writeSymbol(type_decl);
+            return init;
+        case 1:
+            return body;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -950,12 +1203,30 @@ class plus extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_plus");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_plus");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.PLUS, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -996,12 +1267,30 @@ class sub extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_sub");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_sub");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.SUB, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -1042,12 +1331,30 @@ class mul extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_mul");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_mul");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.MUL, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -1088,12 +1395,30 @@ class divide extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_divide");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_divide");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.DIVIDE, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -1130,11 +1455,24 @@ class neg extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_neg");
-	e1.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_neg");
+            return e1;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.NEG, lineNumber);
+            return e1;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -1175,12 +1513,30 @@ class lt extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_lt");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_lt");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.LT, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -1221,12 +1577,30 @@ class eq extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_eq");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_eq");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.EQ, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -1267,12 +1641,30 @@ class leq extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_leq");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_leq");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.LEQ, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -1309,11 +1701,24 @@ class comp extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_comp");
-	e1.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_comp");
+            return e1;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.COMP, lineNumber);
+            return e1;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -1350,11 +1755,20 @@ class int_const extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_int");
-	dump_AbstractSymbol(out, n + 2, token);
-	dump_type(out, n);
+        out.print(Utilities.pad(n));
+        out.println("_int");
+        dump_AbstractSymbol(out, n + 2, token);
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        out.writeNode(BinaryAST.INT, lineNumber);
+        out.writeSymbol(token);
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method method is provided
       * to you as an example of code generation.
@@ -1362,7 +1776,7 @@ class int_const extends Expression {
       * */
     public void code(PrintStream s) {
 	CgenSupport.emitLoadInt(CgenSupport.ACC,
-                                (IntSymbol)AbstractTable.inttable.lookup(token.getString()), s);
+                                (IntSymbol)token, s);
     }
 
 }
@@ -1391,11 +1805,20 @@ class bool_const extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_bool");
-	dump_Boolean(out, n + 2, val);
-	dump_type(out, n);
+        out.print(Utilities.pad(n));
+        out.println("_bool");
+        dump_Boolean(out, n + 2, val);
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        out.writeNode(BinaryAST.BOOL, lineNumber);
+        out.writeBoolean(val);
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method method is provided
       * to you as an example of code generation.
@@ -1431,13 +1854,23 @@ class string_const extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_string");
-	out.print(Utilities.pad(n + 2) + "\"");
-	Utilities.printEscapedString(out, token.getString());
-	out.println("\"");
-	dump_type(out, n);
+        out.print(Utilities.pad(n));
+        out.println("_string");
+        out.print(Utilities.pad(n + 2));
+        out.print("\"");
+        Utilities.printEscapedString(out, token.getString());
+        out.println("\"");
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        out.writeNode(BinaryAST.STRING, lineNumber);
+        out.writeSymbol(token);
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method method is provided
       * to you as an example of code generation.
@@ -1445,7 +1878,7 @@ class string_const extends Expression {
       * */
     public void code(PrintStream s) {
 	CgenSupport.emitLoadString(CgenSupport.ACC,
-                                   (StringSymbol)AbstractTable.stringtable.lookup(token.getString()), s);
+                                   (StringSymbol)token, s);
     }
 
 }
@@ -1474,11 +1907,20 @@ class new_ extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_new");
-	dump_AbstractSymbol(out, n + 2, type_name);
-	dump_type(out, n);
+        out.print(Utilities.pad(n));
+        out.println("_new");
+        dump_AbstractSymbol(out, n + 2, type_name);
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        out.writeNode(BinaryAST.NEW, lineNumber);
+        out.writeSymbol(type_name);
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -1515,11 +1957,24 @@ class isvoid extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_isvoid");
-	e1.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_isvoid");
+            return e1;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.ISVOID, lineNumber);
+            return e1;
+        }
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -1552,10 +2007,18 @@ class no_expr extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_no_expr");
-	dump_type(out, n);
+        out.print(Utilities.pad(n));
+        out.println("_no_expr");
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        out.writeNode(BinaryAST.NO_EXPR, lineNumber);
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
@@ -1592,11 +2055,20 @@ class object extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_object");
-	dump_AbstractSymbol(out, n + 2, name);
-	dump_type(out, n);
+        out.print(Utilities.pad(n));
+        out.println("_object");
+        dump_AbstractSymbol(out, n + 2, name);
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        out.writeNode(BinaryAST.OBJECT, lineNumber);
+        out.writeSymbol(name);
+        out.writeType(get_type());
+        return null;
     }
     /** Generates code for this expression.  This method is to be completed 
       * in programming assignment 5.  (You may add or remove parameters as
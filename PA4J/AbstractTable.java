@@ -38,22 +38,31 @@ import java.util.Enumeration;
     
     A string table is a lookup table that maintains a single copy of
     each string.  The Cool string table class provides methods for
-    inserting and querying string tables in a variety of ways.  While
-    production compilers use hashed data structures to implement string
-    tables, the Cool string tables are implemented as vectors.  The
+    inserting and querying string tables in a variety of ways.  The
+    entries of a Cool string table are kept in a vector, in the order
+    in which they were added, and an open-addressed hash table over the
+    entries makes insertion and lookup by string constant-time
+    operations.  Strings may also be added straight from a character
+    buffer, e.g. the buffer of a lexer, in which case a new
+    <code>String</code> is created only for strings that are not yet in
+    the table.  The
     components of Cool string tables are of type <a
     href="AbstractSymbol.html"> AbstractSymbol</a>).  Each
     AbstractSymbol stores a string, and an integer index unique to the
-    string.
+    string.  The index of an entry is its position in the vector.
 
     <p>
 
     An important point about the structure of the Cool compiler is that
     there are actually three distinct string tables: one for string
-    constants (<a href="#stringtable">AbstractTable.stringtable</a>),
-    one for integer constants (<a
-    href="#inttable">AbstractTable.inttable</a>), and one for
-    identifiers (<a href="#idtable">AbstractTable.idtable</a>).  The
+    constants (<a
+    href="CompilationContext.html#stringtable">stringtable</a>), one
+    for integer constants (<a
+    href="CompilationContext.html#inttable">inttable</a>), and one for
+    identifiers (<a
+    href="CompilationContext.html#idtable">idtable</a>).  Each
+    compilation has its own three tables, kept in its <a
+    href="CompilationContext.html">CompilationContext</a>.  The
     code generator must distinguish integer constants and string
     constants from each other and from identifiers, because special code
     is produced for each string constant and each integer constant in
@@ -80,20 +89,16 @@ import java.util.Enumeration;
     @see IdSymbol
     @see IntSymbol */
 abstract class AbstractTable {
-    /** Global string table of string constants */
-    public static StringTable stringtable = new StringTable();
-
-    /** Global string table of identifiers */
-    public static IdTable idtable = new IdTable();
-
-    /** Global string table of integer constants */
-    public static IntTable inttable = new IntTable();
-
     private static int MAXSIZE = 1000000;
 
     /** Vector of table entries */
     protected Vector tbl = new Vector();
 
+    /** Hash table of the entries in tbl, indexed by the hash code of
+     * their strings and resolved by linear probing.  The length is a
+     * power of two and at least twice the number of entries. */
+    private AbstractSymbol[] hash = new AbstractSymbol[256];
+
     /** Creates a new symbol of the appropriate type */
     protected abstract AbstractSymbol getNewSymbol(String s, 
 						   int len, int index);
@@ -105,23 +110,124 @@ abstract class AbstractTable {
      * @return the symbol for the string s
      * */
     public AbstractSymbol addString(String s, int maxchars) {
-	int len = Math.min(s.length(), maxchars);
-	AbstractSymbol sym = null;
-	for (int i = 0; i < tbl.size(); i++) {
-	    try {
-		sym = (AbstractSymbol)tbl.elementAt(i);
-	    } catch (ArrayIndexOutOfBoundsException ex) {
-		Utilities.fatalError("Unexpected exception: " + ex);
+	String key = s.length() <= maxchars ? s : s.substring(0, maxchars);
+	int h = key.hashCode();
+	int mask = hash.length - 1;
+	for (int i = h & mask; ; i = (i + 1) & mask) {
+	    AbstractSymbol sym = hash[i];
+	    if (sym == null) {
+		return install(key, i);
 	    }
-	    if (sym.equalString(s, len)) {
+	    if (sym.str.hashCode() == h && sym.str.equals(key)) {
 		return sym;
 	    }
 	}
-	sym = getNewSymbol(s, len, tbl.size());
+    }
+
+    /** Adds the characters <code>buf[offset .. offset+len-1]</code> to
+     * this string table.
+     *
+     * A new string is created only if the characters are not in the
+     * table yet, so lexers can intern a token straight from their
+     * input buffer.
+     *
+     * @param buf the buffer holding the characters
+     * @param offset the index of the first character in buf
+     * @param len the number of characters
+     * @return the symbol for the characters
+     * */
+    public AbstractSymbol addString(char[] buf, int offset, int len) {
+	int h = 0;
+	for (int k = offset; k < offset + len; k++) {
+	    h = 31 * h + buf[k];
+	}
+	int mask = hash.length - 1;
+	for (int i = h & mask; ; i = (i + 1) & mask) {
+	    AbstractSymbol sym = hash[i];
+	    if (sym == null) {
+		return install(new String(buf, offset, len), i);
+	    }
+	    if (sym.str.hashCode() == h && sym.str.length() == len) {
+		int k = 0;
+		while (k < len && sym.str.charAt(k) == buf[offset + k]) k++;
+		if (k == len) {
+		    return sym;
+		}
+	    }
+	}
+    }
+
+    /** Adds the characters of the specified sequence, e.g. a
+     * <code>StringBuffer</code>, to this string table.
+     *
+     * A new string is created only if the characters are not in the
+     * table yet.
+     *
+     * @param s the characters to add
+     * @return the symbol for the characters
+     * */
+    public AbstractSymbol addString(CharSequence s) {
+	int len = s.length();
+	int h = 0;
+	for (int k = 0; k < len; k++) {
+	    h = 31 * h + s.charAt(k);
+	}
+	int mask = hash.length - 1;
+	for (int i = h & mask; ; i = (i + 1) & mask) {
+	    AbstractSymbol sym = hash[i];
+	    if (sym == null) {
+		return install(s.toString(), i);
+	    }
+	    if (sym.str.hashCode() == h && sym.str.length() == len) {
+		int k = 0;
+		while (k < len && sym.str.charAt(k) == s.charAt(k)) k++;
+		if (k == len) {
+		    return sym;
+		}
+	    }
+	}
+    }
+
+    /** Creates the symbol for a string that is not in this table yet,
+     * and stores it in the given free slot of the hash table.
+     *
+     * @param s the string
+     * @param slot the free hash table slot for s
+     * @return the new symbol
+     * */
+    private AbstractSymbol install(String s, int slot) {
+	AbstractSymbol sym = getNewSymbol(s, s.length(), tbl.size());
 	tbl.addElement(sym);
+	hash[slot] = sym;
+	if (2 * tbl.size() > hash.length) {
+	    rehash(2 * hash.length);
+	}
 	return sym;
     }
-		
+
+    /** Rebuilds the hash table with the given number of slots */
+    private void rehash(int size) {
+	AbstractSymbol[] old = hash;
+	hash = new AbstractSymbol[size];
+	int mask = size - 1;
+	for (int j = 0; j < old.length; j++) {
+	    if (old[j] != null) {
+		int i = old[j].str.hashCode() & mask;
+		while (hash[i] != null) i = (i + 1) & mask;
+		hash[i] = old[j];
+	    }
+	}
+    }
+
+    /** Makes this table hold the symbols of base, a table of the same
+     * kind.  The symbol objects themselves are shared.
+     *
+     * @param base the table to copy
+     * */
+    protected void copyFrom(AbstractTable base) {
+	tbl = (Vector)base.tbl.clone();
+	hash = base.hash.clone();
+    }
 
     /** Adds the specified string to this string table
      *
@@ -150,6 +256,15 @@ abstract class AbstractTable {
     public Enumeration getSymbols() {
 	return tbl.elements();
     }
+
+    /** Returns the number of symbols in this string table; they have
+     * the indices 0 to size() - 1
+     *
+     * @return the number of symbols
+     * */
+    public int size() {
+	return tbl.size();
+    }
     
     /** Looks up a symbol in this string table by its index
      * 
@@ -177,16 +292,11 @@ abstract class AbstractTable {
      * @return a symbol corresponding to the string
      * */
     public AbstractSymbol lookup(String s) {
-	int len = s.length();
-	AbstractSymbol sym = null;
-	for (int i = 0; i < tbl.size(); i++) {
-	    try {
-		sym = (AbstractSymbol)tbl.elementAt(i);
-	    } catch (ArrayIndexOutOfBoundsException ex) {
-		Utilities.fatalError("Unexpected exception: " + ex);
-	    }
-	    if (sym.equalString(s, len)) {
-		return sym;
+	int h = s.hashCode();
+	int mask = hash.length - 1;
+	for (int i = h & mask; hash[i] != null; i = (i + 1) & mask) {
+	    if (hash[i].str.hashCode() == h && hash[i].str.equals(s)) {
+		return hash[i];
 	    }
 	}
 	Utilities.fatalError("String table lookup failed on string: " + s);
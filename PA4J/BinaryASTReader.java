@@ -0,0 +1,433 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/** Rebuilds an AST from the binary AST format.
+ *
+ * <p>
+ *
+ * Symbols are added to the string tables when the tree first refers
+ * to them, in the order the text of dump_with_types would present them
+ * to ASTLexer, so both paths number the symbols of a program the same
+ * way.  For the same reason a Boolean constant adds "1" or "0" to the
+ * int table.
+ *
+ * @see BinaryAST
+ * */
+class BinaryASTReader {
+    private InputStream in;
+    private CompilationContext ctx;
+    private byte[] buf = new byte[8192];
+    private int pos = 0;
+    private int end = 0;
+
+    /** The strings of the writer's id, int and string tables */
+    private String[][] strings = new String[3][];
+    /** The symbols for those strings, once they have been added */
+    private AbstractSymbol[][] symbols = new AbstractSymbol[3][];
+
+    private static final int ID = 0;
+    private static final int INT = 1;
+    private static final int STR = 2;
+
+    private char[] chars = new char[256];
+
+    /** Creates a reader that reads from in the trees of the given
+     * compilation. */
+    public BinaryASTReader(InputStream in, CompilationContext ctx) {
+	this.in = in;
+	this.ctx = ctx;
+    }
+
+    /** Reads the string tables and the tree of a program.
+     *
+     * @return the program
+     * */
+    public Program readProgram() throws IOException {
+	int b = read();
+	if (b < 0) {
+	    // an earlier phase failed and wrote nothing; as with the
+	    // text format, there is nothing to do
+	    throw new CompilationHalted(1);
+	}
+	for (int i = 0; i < BinaryAST.MAGIC.length; i++) {
+	    if ((i == 0 ? b : read()) != BinaryAST.MAGIC[i]) {
+		throw new IOException("not a binary AST stream");
+	    }
+	}
+	for (int t = ID; t <= STR; t++) {
+	    int n = readInt();
+	    strings[t] = new String[n];
+	    symbols[t] = new AbstractSymbol[n];
+	    for (int i = 0; i < n; i++) {
+		strings[t][i] = readString();
+	    }
+	}
+	int line = node(BinaryAST.PROGRAM);
+	Classes classes = new Classes(line);
+	for (int n = readInt(); n > 0; n--) {
+	    classes.appendElement(classNode());
+	}
+	return new programc(line, classes);
+    }
+
+    private Class_ classNode() throws IOException {
+	int line = node(BinaryAST.CLASS);
+	AbstractSymbol name = symbol(ID);
+	AbstractSymbol parent = symbol(ID);
+	AbstractSymbol filename = symbol(STR);
+	Features features = new Features(line);
+	for (int n = readInt(); n > 0; n--) {
+	    features.appendElement(feature());
+	}
+	return new class_c(line, name, parent, features, filename);
+    }
+
+    private Feature feature() throws IOException {
+	int tag = readInt();
+	int line = readInt();
+	switch (tag) {
+	case BinaryAST.METHOD:
+	    AbstractSymbol name = symbol(ID);
+	    Formals formals = new Formals(line);
+	    for (int n = readInt(); n > 0; n--) {
+		int fline = node(BinaryAST.FORMAL);
+		formals.appendElement(new formalc(fline, symbol(ID), symbol(ID)));
+	    }
+	    return new method(line, name, formals, symbol(ID), expr());
+	case BinaryAST.ATTR:
+	    return new attr(line, symbol(ID), symbol(ID), expr());
+	default:
+	    throw new IOException("bad feature tag in AST: " + tag);
+	}
+    }
+
+    /** An expression or branch whose children are being read */
+    private static class Frame {
+	int tag;
+	int line;
+	/** The number of times next has been called on this frame */
+	int step;
+	AbstractSymbol name;
+	AbstractSymbol type;
+	/** The children before any list */
+	Expression[] kids = new Expression[3];
+	int nkids;
+	/** The actuals of a dispatch or body of a block, once started */
+	Expressions exprs;
+	/** The branches of a typcase, once started */
+	Cases cases;
+	/** The number of list elements still to be read */
+	int left;
+    }
+
+    /** The frames of the nodes being read, reused from node to node */
+    private Frame[] frames = new Frame[16];
+    private int depth = 0;
+
+    /** Reads an expression with an explicit stack, so that its depth
+     * is limited by the heap and not by the Java stack.  The fields of
+     * each node are read in the same order as by a recursive reader.
+     * */
+    private Expression expr() throws IOException {
+	int base = depth;
+	TreeNode value = open(false);
+	while (depth > base) {
+	    Frame f = frames[depth - 1];
+	    if (value != null) {
+		if (f.exprs != null) {
+		    f.exprs.appendElement((Expression)value);
+		} else if (f.cases != null) {
+		    f.cases.appendElement((Case)value);
+		} else {
+		    f.kids[f.nkids++] = (Expression)value;
+		}
+	    }
+	    if (next(f)) {
+		value = open(f.cases != null);
+	    } else {
+		depth--;
+		value = build(f);
+	    }
+	}
+	return (Expression)value;
+    }
+
+    /** Reads the tag and line number of a node, and the rest of it if
+     * it has no children.
+     *
+     * @param branch whether the node must be a branch
+     * @return the node, or null if it has children, in which case a
+     * frame for it has been pushed
+     * */
+    private TreeNode open(boolean branch) throws IOException {
+	int tag = readInt();
+	if (branch && tag != BinaryAST.BRANCH) {
+	    throw new IOException("bad tag in AST: " + tag + ", expected " + BinaryAST.BRANCH);
+	}
+	if (!branch && tag == BinaryAST.BRANCH) {
+	    throw new IOException("bad expression tag in AST: " + tag);
+	}
+	int line = readInt();
+	Expression e;
+	switch (tag) {
+	case BinaryAST.INT:
+	    e = new int_const(line, symbol(INT));
+	    break;
+	case BinaryAST.BOOL:
+	    boolean b = readInt() != 0;
+	    ctx.inttable.addString(b ? "1" : "0");
+	    e = new bool_const(line, b ? Boolean.TRUE : Boolean.FALSE);
+	    break;
+	case BinaryAST.STRING:
+	    e = new string_const(line, symbol(STR));
+	    break;
+	case BinaryAST.NEW:
+	    e = new new_(line, symbol(ID));
+	    break;
+	case BinaryAST.NO_EXPR:
+	    e = new no_expr(line);
+	    break;
+	case BinaryAST.OBJECT:
+	    e = new object(line, symbol(ID));
+	    break;
+	default:
+	    if (depth == frames.length) {
+		frames = Arrays.copyOf(frames, 2 * depth);
+	    }
+	    Frame f = frames[depth];
+	    if (f == null) {
+		f = frames[depth] = new Frame();
+	    }
+	    depth++;
+	    f.tag = tag;
+	    f.line = line;
+	    f.step = 0;
+	    f.nkids = 0;
+	    f.exprs = null;
+	    f.cases = null;
+	    return null;
+	}
+	return typed(e);
+    }
+
+    /** Reads the fields of f that come before its next child.
+     *
+     * @return whether f has another child
+     * */
+    private boolean next(Frame f) throws IOException {
+	int step = f.step++;
+	switch (f.tag) {
+	case BinaryAST.ASSIGN:
+	    if (step == 0) {
+		f.name = symbol(ID);
+	    }
+	    return step < 1;
+	case BinaryAST.STATIC_DISPATCH:
+	    if (step == 0) {
+		return true;
+	    }
+	    if (step == 1) {
+		f.type = symbol(ID);
+		f.name = symbol(ID);
+		f.exprs = new Expressions(f.line);
+		f.left = readInt();
+	    }
+	    return f.left-- > 0;
+	case BinaryAST.DISPATCH:
+	    if (step == 0) {
+		return true;
+	    }
+	    if (step == 1) {
+		f.name = symbol(ID);
+		f.exprs = new Expressions(f.line);
+		f.left = readInt();
+	    }
+	    return f.left-- > 0;
+	case BinaryAST.TYPCASE:
+	    if (step == 0) {
+		return true;
+	    }
+	    if (step == 1) {
+		f.cases = new Cases(f.line);
+		f.left = readInt();
+	    }
+	    return f.left-- > 0;
+	case BinaryAST.BLOCK:
+	    if (step == 0) {
+		f.exprs = new Expressions(f.line);
+		f.left = readInt();
+	    }
+	    return f.left-- > 0;
+	case BinaryAST.LET:
+	case BinaryAST.BRANCH:
+	    if (step == 0) {
+		f.name = symbol(ID);
+		f.type = symbol(ID);
+	    }
+	    return step < (f.tag == BinaryAST.LET ? 2 : 1);
+	case BinaryAST.COND:
+	    return step < 3;
+	case BinaryAST.LOOP:
+	case BinaryAST.PLUS:
+	case BinaryAST.SUB:
+	case BinaryAST.MUL:
+	case BinaryAST.DIVIDE:
+	case BinaryAST.LT:
+	case BinaryAST.EQ:
+	case BinaryAST.LEQ:
+	    return step < 2;
+	case BinaryAST.NEG:
+	case BinaryAST.COMP:
+	case BinaryAST.ISVOID:
+	    return step < 1;
+	default:
+	    throw new IOException("bad expression tag in AST: " + f.tag);
+	}
+    }
+
+    /** Makes the node of a frame whose children have all been read,
+     * and reads its type if it is an expression.
+     * */
+    private TreeNode build(Frame f) throws IOException {
+	int line = f.line;
+	Expression[] k = f.kids;
+	Expression e;
+	switch (f.tag) {
+	case BinaryAST.BRANCH:
+	    return new branch(line, f.name, f.type, k[0]);
+	case BinaryAST.ASSIGN:
+	    e = new assign(line, f.name, k[0]);
+	    break;
+	case BinaryAST.STATIC_DISPATCH:
+	    e = new static_dispatch(line, k[0], f.type, f.name, f.exprs);
+	    break;
+	case BinaryAST.DISPATCH:
+	    e = new dispatch(line, k[0], f.name, f.exprs);
+	    break;
+	case BinaryAST.COND:
+	    e = new cond(line, k[0], k[1], k[2]);
+	    break;
+	case BinaryAST.LOOP:
+	    e = new loop(line, k[0], k[1]);
+	    break;
+	case BinaryAST.TYPCASE:
+	    e = new typcase(line, k[0], f.cases);
+	    break;
+	case BinaryAST.BLOCK:
+	    e = new block(line, f.exprs);
+	    break;
+	case BinaryAST.LET:
+	    e = new let(line, f.name, f.type, k[0], k[1]);
+	    break;
+	case BinaryAST.PLUS:
+	    e = new plus(line, k[0], k[1]);
+	    break;
+	case BinaryAST.SUB:
+	    e = new sub(line, k[0], k[1]);
+	    break;
+	case BinaryAST.MUL:
+	    e = new mul(line, k[0], k[1]);
+	    break;
+	case BinaryAST.DIVIDE:
+	    e = new divide(line, k[0], k[1]);
+	    break;
+	case BinaryAST.NEG:
+	    e = new neg(line, k[0]);
+	    break;
+	case BinaryAST.LT:
+	    e = new lt(line, k[0], k[1]);
+	    break;
+	case BinaryAST.EQ:
+	    e = new eq(line, k[0], k[1]);
+	    break;
+	case BinaryAST.LEQ:
+	    e = new leq(line, k[0], k[1]);
+	    break;
+	case BinaryAST.COMP:
+	    e = new comp(line, k[0]);
+	    break;
+	case BinaryAST.ISVOID:
+	    e = new isvoid(line, k[0]);
+	    break;
+	default:
+	    throw new IOException("bad expression tag in AST: " + f.tag);
+	}
+	return typed(e);
+    }
+
+    /** Reads the type of e and returns e. */
+    private Expression typed(Expression e) throws IOException {
+	int type = readInt();
+	if (type != 0) {
+	    e.set_type(symbol(ID, type - 1));
+	}
+	return e;
+    }
+
+    /** Reads the tag and line number of a node that must have the
+     * given tag, and returns the line number.
+     * */
+    private int node(int tag) throws IOException {
+	int t = readInt();
+	if (t != tag) {
+	    throw new IOException("bad tag in AST: " + t + ", expected " + tag);
+	}
+	return readInt();
+    }
+
+    private AbstractSymbol symbol(int table) throws IOException {
+	return symbol(table, readInt());
+    }
+
+    /** Returns the symbol for entry i of the writer's table t, adding
+     * it to the corresponding string table on first use.
+     * */
+    private AbstractSymbol symbol(int t, int i) {
+	AbstractSymbol sym = symbols[t][i];
+	if (sym == null) {
+	    AbstractTable tbl = t == ID ? (AbstractTable)ctx.idtable
+		: t == INT ? (AbstractTable)ctx.inttable
+		: (AbstractTable)ctx.stringtable;
+	    sym = symbols[t][i] = tbl.addString(strings[t][i]);
+	}
+	return sym;
+    }
+
+    private String readString() throws IOException {
+	int len = readInt();
+	if (len > chars.length) {
+	    chars = new char[Math.max(2 * chars.length, len)];
+	}
+	for (int i = 0; i < len; i++) {
+	    chars[i] = (char)readInt();
+	}
+	return new String(chars, 0, len);
+    }
+
+    private int readInt() throws IOException {
+	int v = 0;
+	for (int shift = 0; ; shift += 7) {
+	    int b = read();
+	    if (b < 0) {
+		throw new IOException("unexpected end of AST stream");
+	    }
+	    v |= (b & 0x7f) << shift;
+	    if ((b & 0x80) == 0) {
+		return v;
+	    }
+	}
+    }
+
+    private int read() throws IOException {
+	if (pos == end) {
+	    end = in.read(buf, 0, buf.length);
+	    pos = 0;
+	    if (end <= 0) {
+		end = 0;
+		return -1;
+	    }
+	}
+	return buf[pos++] & 0xff;
+    }
+}
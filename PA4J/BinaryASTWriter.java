@@ -0,0 +1,160 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/** Writes an AST in the binary AST format.
+ *
+ * <p>
+ *
+ * The string tables are written first, then each node writes itself
+ * through its dump_binary method, which mirrors dump_with_types.
+ * writeProgram writes the whole tables of the compilation, and
+ * writeCompact only the symbols the tree refers to, numbered in the
+ * order the tree first refers to them.
+ *
+ * @see BinaryAST
+ * */
+class BinaryASTWriter {
+    private OutputStream out;
+    private CompilationContext ctx;
+    private byte[] buf = new byte[8192];
+    private int len = 0;
+
+    /** The number in the written tables of each symbol the tree has
+     * referred to, or null when writing the whole tables */
+    private IdentityHashMap<AbstractSymbol, Integer> numbers;
+    /** The symbols in the written id, int and string tables */
+    private ArrayList<ArrayList<AbstractSymbol>> used;
+
+    /** Creates a writer that writes to out the trees of the given
+     * compilation. */
+    public BinaryASTWriter(OutputStream out, CompilationContext ctx) {
+	this.out = out;
+	this.ctx = ctx;
+    }
+
+    /** Writes the string tables and the tree of a program, and
+     * flushes the stream.
+     *
+     * @param program the program
+     * */
+    public void writeProgram(Program program) throws IOException {
+	out.write(BinaryAST.MAGIC);
+	writeTable(ctx.idtable);
+	writeTable(ctx.inttable);
+	writeTable(ctx.stringtable);
+	program.dump_binary(this);
+	out.write(buf, 0, len);
+	len = 0;
+	out.flush();
+    }
+
+    /** Writes a program as writeProgram does, but with only the
+     * symbols the tree refers to in the tables, so that the size of
+     * the output depends only on the tree and not on the compilation.
+     *
+     * @param program the program
+     * */
+    public void writeCompact(Program program) throws IOException {
+	OutputStream target = out;
+	ByteArrayOutputStream tree = new ByteArrayOutputStream();
+	numbers = new IdentityHashMap<AbstractSymbol, Integer>();
+	used = new ArrayList<ArrayList<AbstractSymbol>>();
+	for (int t = 0; t < 3; t++) {
+	    used.add(new ArrayList<AbstractSymbol>());
+	}
+	try {
+	    out = tree;
+	    program.dump_binary(this);
+	    out.write(buf, 0, len);
+	    len = 0;
+	    out = target;
+	    out.write(BinaryAST.MAGIC);
+	    for (ArrayList<AbstractSymbol> table : used) {
+		writeLength(table.size());
+		for (AbstractSymbol sym : table) {
+		    writeString(sym.getString());
+		}
+	    }
+	    out.write(buf, 0, len);
+	    len = 0;
+	    tree.writeTo(out);
+	    out.flush();
+	} finally {
+	    out = target;
+	    numbers = null;
+	    used = null;
+	}
+    }
+
+    private void writeTable(AbstractTable tbl) throws IOException {
+	int size = tbl.size();
+	writeLength(size);
+	for (int i = 0; i < size; i++) {
+	    writeString(tbl.lookup(i).getString());
+	}
+    }
+
+    private void writeString(String s) throws IOException {
+	writeLength(s.length());
+	for (int j = 0; j < s.length(); j++) {
+	    writeInt(s.charAt(j));
+	}
+    }
+
+    /** Returns the index of sym in the written table for its kind. */
+    private int number(AbstractSymbol sym) {
+	if (numbers == null) {
+	    return sym.index;
+	}
+	Integer n = numbers.get(sym);
+	if (n == null) {
+	    ArrayList<AbstractSymbol> table = used.get(sym instanceof IntSymbol ? 1
+						       : sym instanceof StringSymbol ? 2 : 0);
+	    n = table.size();
+	    table.add(sym);
+	    numbers.put(sym, n);
+	}
+	return n;
+    }
+
+    /** Writes the tag and line number that start a node. */
+    public void writeNode(int tag, int lineNumber) throws IOException {
+	writeInt(tag);
+	writeInt(lineNumber);
+    }
+
+    /** Writes a symbol field. */
+    public void writeSymbol(AbstractSymbol sym) throws IOException {
+	writeInt(number(sym));
+    }
+
+    /** Writes the type of an expression, which may be null. */
+    public void writeType(AbstractSymbol type) throws IOException {
+	writeInt(type == null ? 0 : number(type) + 1);
+    }
+
+    /** Writes a Boolean field. */
+    public void writeBoolean(Boolean b) throws IOException {
+	writeInt(b.booleanValue() ? 1 : 0);
+    }
+
+    /** Writes the length of a list, ahead of its elements. */
+    public void writeLength(int n) throws IOException {
+	writeInt(n);
+    }
+
+    private void writeInt(int v) throws IOException {
+	if (len + 5 > buf.length) {
+	    out.write(buf, 0, len);
+	    len = 0;
+	}
+	while ((v & ~0x7f) != 0) {
+	    buf[len++] = (byte)((v & 0x7f) | 0x80);
+	    v >>>= 7;
+	}
+	buf[len++] = (byte)v;
+    }
+}
@@ -1,89 +1,117 @@
-import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * This class may be used to contain the semantic information such as
  * the inheritance graph. You may use it or not as you like: it is only
  * here to provide a container for the supplied methods.
+ *
+ * Once the constructor and addMethod have built the inheritance graph
+ * and the method environment, they are only read, so the classes can be
+ * checked on many threads at once (see checkClasses).  Each class is
+ * checked with a table of its own, which shares the graph and the
+ * methods but keeps its own current class, object environment and
+ * errors.
  */
 class ClassTable {
-    private int semantErrors;
-    private PrintStream errorStream;
+    private CompilationContext ctx;
+    /** Where the errors found with this table go */
+    private Diagnostics diagnostics;
+    /** What stopped the check of the class of a per-class table, if
+     * anything */
+    private Throwable failure;
 
     class InheritanceGraph {
-        Map<AbstractSymbol, Set<AbstractSymbol>> parents = new HashMap<AbstractSymbol, Set<AbstractSymbol>>();
-        Set<AbstractSymbol> visited = new HashSet<AbstractSymbol>();
-        Set<AbstractSymbol> stack = new HashSet<AbstractSymbol>();
+        SymbolMap<SymbolSet> parents = new SymbolMap<SymbolSet>();
 
-        Map<AbstractSymbol, class_c> classes = new HashMap<AbstractSymbol, class_c>();
+        SymbolMap<class_c> classes = new SymbolMap<class_c>();
+
+        private final SymbolSet noParents = new SymbolSet();
+
+        /** The preorder and postorder numbers of each class in a
+         * depth-first walk of the inheritance tree from Object, by
+         * symbol index; 0 for symbols that are not in the tree */
+        private int[] pre = new int[0];
+        private int[] post = new int[0];
+
+        /** up[k][i] is the index of the ancestor 2^k levels above the
+         * class with index i, or of Object if there is none */
+        private int[][] up = new int[0][];
+        /** The classes in the tree, by symbol index */
+        private AbstractSymbol[] symbols = new AbstractSymbol[0];
+        /** The classes in the tree, in preorder */
+        private List<AbstractSymbol> preorder = new ArrayList<AbstractSymbol>();
 
         public InheritanceGraph(Classes cls) {
             List<AbstractSymbol> basicClasses = Arrays.asList(
                 TreeConstants.Object_, TreeConstants.IO, TreeConstants.Str, 
                 TreeConstants.Int, TreeConstants.Bool, TreeConstants.SELF_TYPE);
-            for (Enumeration e = cls.getElements(); e.hasMoreElements();) {
-                Object n = e.nextElement();
+            for (Class_ n : cls) {
                 class_c c = (class_c) n;
                 if (basicClasses.contains(c.getName())) {
-                    semantError(c).println("Redefinition of basic class " + c.getName());;
+                    semantError(c, "Redefinition of basic class " + c.getName());
                 }
                 if (classes.containsKey(c.getName())) {
-                    semantError(c).println("Class " + c.getName() + " multiply defined");
+                    semantError(c, "Class " + c.getName() + " multiply defined");
                 }
                 classes.put(c.getName(), c);
             }
             // check if there is a Main class
             if (!classes.containsKey(TreeConstants.Main)) {
-                semantError().println("Class Main is not defined.");
+                semantError("Class Main is not defined.");
             }
         }
 
+        /**
+         * Returns the least upper bound of two types: their lowest
+         * common ancestor in the inheritance tree, found by binary
+         * lifting in O(log depth) steps.  A type that is not a class in
+         * the tree, such as SELF_TYPE, is its own upper bound, and its
+         * upper bound with any other type is Object.
+         */
         public AbstractSymbol getLUB(AbstractSymbol a, AbstractSymbol b) {
-            Set<AbstractSymbol> s1 = new HashSet<AbstractSymbol>();
-            Set<AbstractSymbol> s2 = new HashSet<AbstractSymbol>();
-            LUBUtil(a, s1);
-            LUBUtil(b, s2);
-            // find all s in s1 that in-degree = 0
-            Map<AbstractSymbol, Integer> degrees = new HashMap<AbstractSymbol, Integer>();
-            for (AbstractSymbol s : s2) {
-                if (s1.contains(s)) {
-                    degrees.put(s, 0);
-                }
+            if (a.index == b.index) {
+                return a;
             }
-            for (AbstractSymbol s : degrees.keySet()) {
-                for (AbstractSymbol p : getSup(s)) {
-                    if (degrees.containsKey(p)) {
-                        degrees.put(p, degrees.get(p) + 1);
-                    }
-                }
+            if (a.index >= pre.length || b.index >= pre.length
+                || pre[a.index] == 0 || pre[b.index] == 0) {
+                return TreeConstants.Object_;
+            }
+            int x = a.index;
+            int y = b.index;
+            if (contains(x, y)) {
+                return a;
             }
-            for (AbstractSymbol s : degrees.keySet()) {
-                if (degrees.get(s) == 0) {
-                    return s;
+            if (contains(y, x)) {
+                return b;
+            }
+            // climb from y to the highest ancestor that is not above x;
+            // its parent is the answer
+            for (int k = up.length - 1; k >= 0; k--) {
+                if (!contains(up[k][y], x)) {
+                    y = up[k][y];
                 }
             }
-            return TreeConstants.Object_;
+            return symbols[up[0][y]];
         }
-        /**
-         * get all ancestors of AbstractSymbol a
-         */
-        public void LUBUtil(AbstractSymbol a, Set<AbstractSymbol> s) {
-            for (AbstractSymbol p : getSup(a)) {
-                LUBUtil(p, s);
-            }
-            s.add(a);
+
+        /** Tests whether the class with index x is the class with
+         * index y or one of its ancestors; both must be in the tree */
+        private boolean contains(int x, int y) {
+            return pre[x] <= pre[y] && post[y] <= post[x];
         }
 
-        public Set<AbstractSymbol> getSup(AbstractSymbol c) {
-            return parents.get(c) == null ? new HashSet<AbstractSymbol>() : parents.get(c);
+        public SymbolSet getSup(AbstractSymbol c) {
+            SymbolSet sup = parents.get(c);
+            return sup == null ? noParents : sup;
         }
 
         void addClass(class_c c) {
             classes.put(c.getName(), c);
             // add all methods inside the class
-            for (Enumeration f = c.features.getElements(); f.hasMoreElements(); ) {
-                Feature feature = (Feature) f.nextElement();
-                if (feature instanceof method) {
+            for (Feature feature : c.features) {
+                if (feature.kind() == BinaryAST.METHOD) {
                     method method = (method) feature;
                     addMethod(c.getName(), method);
                 }
@@ -99,104 +127,213 @@ class ClassTable {
         void addEdge(AbstractSymbol c, AbstractSymbol p) {
             // System.out.println("Add edge: " + c + " -> " + p);
             if (!parents.containsKey(c)) {
-                parents.put(c, new HashSet<AbstractSymbol>());
+                parents.put(c, new SymbolSet());
             }
             parents.get(c).add(p);
         }
 
         void reportCycle(AbstractSymbol clz) {
-            semantError(classes.get(clz))
-                .println("Class " + clz + ", or an ancestor of " + clz + ", is involved in an inheritance cycle.");
+            semantError(classes.get(clz),
+                "Class " + clz + ", or an ancestor of " + clz + ", is involved in an inheritance cycle.");
         }
 
-        boolean checkCycle() {
-            for (AbstractSymbol clz : parents.keySet()) {
-                if (!visited.contains(clz)) {
-                    if (hasCycleUtil(clz)) {
-                        reportCycle(clz);
-                        return true;
+        /**
+         * Numbers the classes in a depth-first walk of the inheritance
+         * tree, so that a class conforms to another exactly when the
+         * walk enters it after the other and leaves it before.  The
+         * walk keeps its own stack, so deep hierarchies do not
+         * overflow the Java stack.
+         */
+        void number() {
+            SymbolMap<List<AbstractSymbol>> children = new SymbolMap<List<AbstractSymbol>>();
+            for (AbstractSymbol c : parents) {
+                for (AbstractSymbol p : parents.get(c)) {
+                    List<AbstractSymbol> list = children.get(p);
+                    if (list == null) {
+                        list = new ArrayList<AbstractSymbol>();
+                        children.put(p, list);
                     }
+                    list.add(c);
                 }
             }
-            return false;
-        }
 
-        boolean hasCycleUtil(AbstractSymbol clz) {
-            if (stack.contains(clz)) {
-                return true;
-            }
-            stack.add(clz);
-            if (parents.containsKey(clz)) {
-                for (AbstractSymbol p : parents.get(clz)) {
-                    if (hasCycleUtil(p)) {
-                        return true;
+            int size = ctx.idtable.size();
+            pre = new int[size];
+            post = new int[size];
+            symbols = new AbstractSymbol[size];
+            preorder = new ArrayList<AbstractSymbol>();
+            int[] parent = new int[size];
+            int height = 0;
+            int[] depth = new int[size];
+            int clock = 0;
+            parent[TreeConstants.Object_.index] = TreeConstants.Object_.index;
+            List<AbstractSymbol> stack = new ArrayList<AbstractSymbol>();
+            stack.add(TreeConstants.Object_);
+            while (!stack.isEmpty()) {
+                AbstractSymbol c = stack.remove(stack.size() - 1);
+                if (pre[c.index] == 0) {
+                    // entering c: leave it once its children are done
+                    pre[c.index] = ++clock;
+                    symbols[c.index] = c;
+                    preorder.add(c);
+                    height = Math.max(height, depth[c.index]);
+                    stack.add(c);
+                    List<AbstractSymbol> list = children.get(c);
+                    if (list != null) {
+                        for (AbstractSymbol child : list) {
+                            if (pre[child.index] == 0) {
+                                parent[child.index] = c.index;
+                                depth[child.index] = depth[c.index] + 1;
+                                stack.add(child);
+                            }
+                        }
                     }
+                } else if (post[c.index] == 0) {
+                    post[c.index] = ++clock;
                 }
             }
-            stack.remove(clz);
-            visited.add(clz);
-            return false;
 
+            // the jump tables for getLUB
+            int levels = 1;
+            while ((1 << levels) <= height) {
+                levels++;
+            }
+            up = new int[levels][];
+            up[0] = parent;
+            for (int k = 1; k < levels; k++) {
+                int[] half = up[k - 1];
+                up[k] = new int[size];
+                for (int i = 0; i < size; i++) {
+                    up[k][i] = half[half[i]];
+                }
+            }
         }
-    }
-
-    private InheritanceGraph graph;
-
-    private SymbolTable objectEnv = new SymbolTable();
-
-    class MethodId {
-        private AbstractSymbol type;
-        private AbstractSymbol name;
 
-        public MethodId(AbstractSymbol t, AbstractSymbol n) {
-            type = t;
-            name = n;
+        /** Returns the classes in the tree, each after its parent. */
+        List<AbstractSymbol> preorder() {
+            return preorder;
         }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) {
+        /**
+         * Tests whether class a is b or a descendant of b, in constant
+         * time.  Only symbols that are classes in the tree from Object
+         * conform to classes other than themselves.
+         */
+        boolean inherits(AbstractSymbol a, AbstractSymbol b) {
+            if (a.index == b.index) {
                 return true;
             }
-            if (obj == null || getClass() != obj.getClass()) {
+            if (a.index >= pre.length || b.index >= pre.length
+                || pre[a.index] == 0 || pre[b.index] == 0) {
                 return false;
             }
-            MethodId other = (MethodId) obj;
-            if (type == null) {
-                if (other.type != null) {
-                    return false;
+            return contains(b.index, a.index);
+        }
+
+        /**
+         * Reports every class of the program that is in an inheritance
+         * cycle, in program order, and returns true if there are any.
+         * The cycles are the strongly connected components of the graph
+         * with more than one class, or one class that is its own
+         * parent, found by Tarjan's algorithm in a single pass over the
+         * classes and edges.  The walk keeps its own stack, so long
+         * chains of classes do not overflow the Java stack.
+         */
+        boolean checkCycle(Classes cls) {
+            int size = ctx.idtable.size();
+            // the order in which the walk reaches each class, from 1,
+            // and the lowest such number reachable from its subtree
+            // through an edge to a class still on the component stack
+            int[] order = new int[size];
+            int[] low = new int[size];
+            boolean[] onStack = new boolean[size];
+            boolean[] inCycle = new boolean[size];
+            int[] component = new int[size];
+            int top = 0;
+            int clock = 0;
+            boolean found = false;
+
+            List<AbstractSymbol> path = new ArrayList<AbstractSymbol>();
+            List<Iterator<AbstractSymbol>> edges = new ArrayList<Iterator<AbstractSymbol>>();
+            for (AbstractSymbol root : parents) {
+                if (order[root.index] != 0) {
+                    continue;
+                }
+                path.add(root);
+                edges.add(getSup(root).iterator());
+                order[root.index] = low[root.index] = ++clock;
+                component[top++] = root.index;
+                onStack[root.index] = true;
+                while (!path.isEmpty()) {
+                    int c = path.get(path.size() - 1).index;
+                    Iterator<AbstractSymbol> e = edges.get(edges.size() - 1);
+                    if (e.hasNext()) {
+                        AbstractSymbol p = e.next();
+                        if (p.index == c) {
+                            inCycle[c] = true;
+                        } else if (order[p.index] == 0) {
+                            path.add(p);
+                            edges.add(getSup(p).iterator());
+                            order[p.index] = low[p.index] = ++clock;
+                            component[top++] = p.index;
+                            onStack[p.index] = true;
+                        } else if (onStack[p.index]) {
+                            low[c] = Math.min(low[c], order[p.index]);
+                        }
+                        continue;
+                    }
+                    path.remove(path.size() - 1);
+                    edges.remove(edges.size() - 1);
+                    if (!path.isEmpty()) {
+                        int caller = path.get(path.size() - 1).index;
+                        low[caller] = Math.min(low[caller], low[c]);
+                    }
+                    if (low[c] == order[c]) {
+                        // c is the first class of a component: pop it
+                        int start = top;
+                        do {
+                            onStack[component[--start]] = false;
+                        } while (component[start] != c);
+                        if (top - start > 1) {
+                            for (int i = start; i < top; i++) {
+                                inCycle[component[i]] = true;
+                            }
+                        }
+                        top = start;
+                    }
                 }
-            } else if (!type.equals(other.type)) {
-                return false;
             }
-            if (name == null) {
-                if (other.name != null) {
-                    return false;
+
+            for (Class_ e : cls) {
+                AbstractSymbol clz = ((class_c) e).getName();
+                if (inCycle[clz.index]) {
+                    reportCycle(clz);
+                    found = true;
                 }
-            } else if (!name.equals(other.name)) {
-                return false;
             }
-            return true;
-        }
-        @Override
-        public int hashCode() {
-            int result = 17;
-            result = 31 * result + (type != null ? type.hashCode() : 0);
-            result = 31 * result + (name != null ? name.hashCode() : 0);
-            return result;
+            return found;
         }
     }
 
-    private Map<MethodId, method> methodEnv = new HashMap<MethodId, method>();
+    private InheritanceGraph graph;
+
+    /** The types of the identifiers in scope */
+    private SymbolEnv objectEnv = SymbolEnv.EMPTY;
+    /** The environments to restore on exitScope, innermost last */
+    private List<SymbolEnv> outerEnvs = new ArrayList<SymbolEnv>();
+
+    /** Methods defined in each class, by class name and method name */
+    private SymbolMap<SymbolMap<MethodTable.Signature>> methodEnv =
+        new SymbolMap<SymbolMap<MethodTable.Signature>>();
+    /** The methods of each class, its own and inherited, by class name;
+     * filled in by buildMethodTables */
+    private SymbolMap<MethodTable> methodTables = new SymbolMap<MethodTable>();
 
     private class_c currentClass;
 
     public class_c getCurrentClass() {
         return currentClass;
     }
-    public void setCurrentClass(class_c c) {
-        this.currentClass = c;
-    }
        
 
     /**
@@ -206,20 +343,13 @@ class ClassTable {
     // if a conforms to b return true
     public boolean conform(AbstractSymbol a, AbstractSymbol b) {
         // process SELF_TYPE
-        a = a.equals(TreeConstants.SELF_TYPE) ? currentClass.name : a;
-        b = b.equals(TreeConstants.SELF_TYPE) ? currentClass.name : b;
-        if (a.equals(b)) {
-            return true;
-        }
-        AbstractSymbol p = a;
-        if (!p.equals(TreeConstants.Object_)) {
-            for (AbstractSymbol parent : graph.getSup(p)) {
-                if (conform(parent, b)) {
-                    return true;
-                }
-            }
+        if (a.index == TreeConstants.SELF_TYPE.index) {
+            a = currentClass.name;
+        }
+        if (b.index == TreeConstants.SELF_TYPE.index) {
+            b = currentClass.name;
         }
-        return false;
+        return graph.inherits(a, b);
     }
 
     public AbstractSymbol getLUB(AbstractSymbol a, AbstractSymbol b) {
@@ -227,19 +357,19 @@ class ClassTable {
     }
 
     public void errorPrint(String s) {
-        semantError(currentClass).println(s);
+        semantError(currentClass, s);
     }
 
     public void enterScope() {
-        objectEnv.enterScope();
+        outerEnvs.add(objectEnv);
     }
 
     public void exitScope() {
-        objectEnv.exitScope();
+        objectEnv = outerEnvs.remove(outerEnvs.size() - 1);
     }
     
     public void addObj(AbstractSymbol id, AbstractSymbol type) {
-        objectEnv.addId(id, type);
+        objectEnv = objectEnv.add(id, type);
     }
 
     public AbstractSymbol lookupObj(AbstractSymbol id) {
@@ -253,99 +383,169 @@ class ClassTable {
     }
 
     public void addMethod(AbstractSymbol type, method m) {
-        MethodId key = new MethodId(type, m.name);
-        checkRedefine(type, m);
-        methodEnv.put(key, m);
+        MethodTable.Signature sig = new MethodTable.Signature(m);
+        checkRedefine(type, sig);
+        SymbolMap<MethodTable.Signature> methods = methodEnv.get(type);
+        if (methods == null) {
+            methods = new SymbolMap<MethodTable.Signature>();
+            methodEnv.put(type, methods);
+        }
+        methods.put(m.name, sig);
     }
 
-    void checkRedefine(AbstractSymbol type, method m) {
+    void checkRedefine(AbstractSymbol type, MethodTable.Signature sig) {
         // find if this method redefine a method from parent class
-        method original = lookupMethod(type, m.name);
+        method m = sig.def;
+        MethodTable.Signature original = findMethod(type, m.name);
         class_c clz = graph.getClass(type);
         if (original == null) {
             return;
         }
         // check if the redefined method conform the original one
-        List<AbstractSymbol> formals1 = new ArrayList<AbstractSymbol>();
-        List<AbstractSymbol> formals2 = new ArrayList<AbstractSymbol>();
-        for (Enumeration f1 = m.formals.getElements(); f1.hasMoreElements();) {
-            formals1.add(((formalc)f1.nextElement()).type_decl);
-        }
-        for (Enumeration f2 = original.formals.getElements(); f2.hasMoreElements();) {
-            formals2.add(((formalc)f2.nextElement()).type_decl);
-        }
-        // do check:
-        if (formals1.size() != formals2.size()) {
-            semantError(clz).println("In redefined method " + m.name + 
-                ", number of arguments is different from original method " + original.name + ".");
+        if (sig.formals.length != original.formals.length) {
+            semantError(clz, "In redefined method " + m.name + 
+                ", number of arguments is different from original method " + original.def.name + ".");
             return;
         }
-        for (int i = 0; i < formals1.size(); i++) {
-            if (!formals1.get(i).equals(formals2.get(i))) {
-                semantError(clz).println("In redefined method " + m.name + 
-                    ", argument type is different from original method " + original.name + ".");
+        for (int i = 0; i < sig.formals.length; i++) {
+            if (!sig.formals[i].equals(original.formals[i])) {
+                semantError(clz, "In redefined method " + m.name + 
+                    ", argument type is different from original method " + original.def.name + ".");
                 return;
             }
         }
-        if (m.return_type != original.return_type) {
-            semantError(clz).println("In redefined method " + m.name + 
-                ", return type is different from original method " + original.name + ".");
+        if (sig.returnType != original.returnType) {
+            semantError(clz, "In redefined method " + m.name + 
+                ", return type is different from original method " + original.def.name + ".");
             return;
         }
     }
 
-    public method lookupMethod(AbstractSymbol type, AbstractSymbol name) {
-        MethodId key = new MethodId(type, name);
-        if (methodEnv.containsKey(key)) {
-            return (method) methodEnv.get(key);
+    /**
+     * Looks a method up among the methods added so far, searching the
+     * class and then its ancestors.
+     */
+    private MethodTable.Signature findMethod(AbstractSymbol type, AbstractSymbol name) {
+        SymbolMap<MethodTable.Signature> methods = methodEnv.get(type);
+        if (methods != null && methods.containsKey(name)) {
+            return methods.get(name);
         }
         for (AbstractSymbol sup : graph.getSup(type)) {
-            method m = lookupMethod(sup, name);
+            MethodTable.Signature m = findMethod(sup, name);
             if (m != null) {
                 return m;
             }
         }
         return null;
     }
+
     /**
-     * Get all attributes in the inheritance hierarchy of a class
+     * Lays out the method table of every class, once all methods have
+     * been added.  Each class starts from a copy of its parent's table,
+     * so the tables are built parents first.
      */
-    public void addAllAttributes(AbstractSymbol type) {
-        Set<AbstractSymbol> visited = new HashSet<AbstractSymbol>();
-        Set<AbstractSymbol> added = new HashSet<AbstractSymbol>();
-        addAllAttributesUtils(type, visited, added);
+    public void buildMethodTables() {
+        for (AbstractSymbol type : graph.preorder()) {
+            MethodTable table = null;
+            for (AbstractSymbol sup : graph.getSup(type)) {
+                table = new MethodTable(methodTables.get(sup));
+            }
+            if (table == null) {
+                table = new MethodTable();
+            }
+            SymbolMap<MethodTable.Signature> methods = methodEnv.get(type);
+            class_c c = graph.getClass(type);
+            for (Feature feature : c.features) {
+                if (feature.kind() == BinaryAST.METHOD) {
+                    table.define(methods.get(((method) feature).name));
+                }
+            }
+            methodTables.put(type, table);
+        }
     }
 
-    private void addAllAttributesUtils(AbstractSymbol type, 
-        Set<AbstractSymbol> visited, Set<AbstractSymbol> added) {
-
-        if (visited.contains(type)) {
-            return;
+    /**
+     * Returns the method a class has under the given name, its own or
+     * inherited, or null if it has none or is not a class.
+     */
+    public MethodTable.Signature lookupMethod(AbstractSymbol type, AbstractSymbol name) {
+        MethodTable table = methodTables.get(type);
+        return table == null ? null : table.lookup(name);
+    }
+    /**
+     * The attributes of a class, its own and inherited, as the object
+     * environment a class starts with.
+     */
+    private static class Attributes {
+        /** The attributes by name */
+        final SymbolEnv env;
+        /** The errors in the attributes of the class and its ancestors,
+         * ancestors first, which are reported again in every class that
+         * inherits them */
+        final List<String> errors;
+
+        Attributes(SymbolEnv env, List<String> errors) {
+            this.env = env;
+            this.errors = errors;
         }
-        for (AbstractSymbol sup : graph.getSup(type)) {
-            addAllAttributesUtils(sup, visited, added);
-        }
-        class_c c = graph.getClass(type);
-        Features features = c.features;
-        for (Enumeration e = features.getElements(); e.hasMoreElements(); ) {
-            Feature feature = (Feature) e.nextElement();
-            if (feature instanceof attr) {
-                attr attr = (attr) feature;
-                if (attr.name.equals(TreeConstants.self)) {
-                    // attr cannot be named self
-                    errorPrint("'self' cannot be the name of an attribute");
-                } else {
-                    if(!added.add(attr.name)) {
-                        errorPrint("Attribute " + attr.name + " is an attribute of an inherited class");
+    }
+
+    /** The attributes of each class, by class name; filled in by
+     * buildAttributes */
+    private SymbolMap<Attributes> attributes = new SymbolMap<Attributes>();
+
+    /**
+     * Computes the attributes of every class, parents first.  A class
+     * extends the environment of its parent, which it shares, with its
+     * own attributes, so each attribute is added once in all.
+     */
+    public void buildAttributes() {
+        Attributes none = new Attributes(SymbolEnv.EMPTY, new ArrayList<String>());
+        for (AbstractSymbol type : graph.preorder()) {
+            Attributes inherited = none;
+            for (AbstractSymbol sup : graph.getSup(type)) {
+                inherited = attributes.get(sup);
+            }
+            SymbolEnv env = inherited.env;
+            List<String> errors = inherited.errors;
+            class_c c = graph.getClass(type);
+            for (Feature feature : c.features) {
+                if (feature.kind() == BinaryAST.ATTR) {
+                    attr attr = (attr) feature;
+                    String error = null;
+                    if (attr.name.equals(TreeConstants.self)) {
+                        // attr cannot be named self
+                        error = "'self' cannot be the name of an attribute";
+                    } else if (env.lookup(attr.name) != null) {
+                        error = "Attribute " + attr.name + " is an attribute of an inherited class";
                     } else {
-                        addObj(attr.name, attr.type_decl);
+                        env = env.add(attr.name, attr.type_decl);
+                    }
+                    if (error != null) {
+                        if (errors == inherited.errors) {
+                            errors = new ArrayList<String>(errors);
+                        }
+                        errors.add(error);
                     }
                 }
             }
+            attributes.put(type, new Attributes(env, errors));
         }
-        visited.add(type);
     }
 
+    /**
+     * Get all attributes in the inheritance hierarchy of a class.  They
+     * replace the identifiers in scope, of which there are none at the
+     * start of a class, and the errors in them are reported in the
+     * current class.
+     */
+    public void addAllAttributes(AbstractSymbol type) {
+        Attributes a = attributes.get(type);
+        for (String error : a.errors) {
+            errorPrint(error);
+        }
+        objectEnv = a.env;
+    }
 
     /**
      * Creates data structures representing basic Cool classes (Object,
@@ -354,7 +554,7 @@ class ClassTable {
      * you want.
      */
     private void installBasicClasses() {
-        AbstractSymbol filename = AbstractTable.stringtable.addString("<basic class>");
+        AbstractSymbol filename = ctx.stringtable.addString("<basic class>");
 
         // The following demonstrates how to create dummy parse trees to
         // refer to basic Cool classes. There's no need for method
@@ -515,78 +715,162 @@ class ClassTable {
         graph.addEdge(Str_class.getName(), Object_class.getName());
     }
 
-    public ClassTable(Classes cls) {
-        semantErrors = 0;
-        errorStream = System.err;
+    /**
+     * Builds the inheritance graph of the given classes and checks it.
+     *
+     * @param ctx the compilation
+     * @param cls the classes of the program
+     * @param diagnostics where to record errors
+     */
+    public ClassTable(CompilationContext ctx, Classes cls, Diagnostics diagnostics) {
+        this.ctx = ctx;
+        this.diagnostics = diagnostics;
 
         /* fill this in */
         graph = new InheritanceGraph(cls);
         installBasicClasses();
-        Set<AbstractSymbol> basic = new HashSet<AbstractSymbol>();
+        SymbolSet basic = new SymbolSet();
         basic.add(TreeConstants.Str);
         basic.add(TreeConstants.Int);
         basic.add(TreeConstants.Bool);
-        for (Enumeration e = cls.getElements(); e.hasMoreElements();) {
-            Object n = e.nextElement();
+        for (Class_ n : cls) {
             class_c c = (class_c) n;
             AbstractSymbol parent = c.getParent();
             if (!graph.hasClass(parent)) {
-                semantError(c).println("Class " + c.getName() + "inherits from an undefined class " + parent);
+                semantError(c, "Class " + c.getName() + "inherits from an undefined class " + parent);
             }
             if (basic.contains(parent)) {
-                semantError(c).println("Class " + c.getName() + " cannot inherits from basic class " + parent);
+                semantError(c, "Class " + c.getName() + " cannot inherits from basic class " + parent);
             }
             graph.addEdge(((class_c) n).getName(), ((class_c) n).getParent());
         }
         // do some checks
-        graph.checkCycle();
+        graph.checkCycle(cls);
+        graph.number();
     }
 
     /**
-     * Prints line number and file name of the given class.
-     *
-     * Also increments semantic error count.
+     * Makes a table for checking one class, which may be used on a
+     * thread of its own.  It shares the inheritance graph, the methods
+     * and the attributes of this table and records its errors in a
+     * sink of its own.
+     */
+    private ClassTable(ClassTable shared, class_c c, Diagnostics diagnostics) {
+        ctx = shared.ctx;
+        graph = shared.graph;
+        methodEnv = shared.methodEnv;
+        methodTables = shared.methodTables;
+        attributes = shared.attributes;
+        currentClass = c;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Checks the given classes on a fork-join pool, each with a table
+     * of its own, and then merges their errors in the order of the
+     * classes, so the errors and the types set on the tree are the
+     * same as when the classes are checked one after another.
      *
-     * @param c the class
-     * @return a print stream to which the rest of the error message is
-     *         to be printed.
+     * If the check of a class throws, the errors up to and including
+     * that class are merged and the exception is passed on.
      *
+     * @throws Diagnostics.LimitReached if there are too many errors
      */
-    public PrintStream semantError(class_c c) {
-        return semantError(c.getFilename(), c);
+    public void checkClasses(Classes cls) {
+        Diagnostics[] sinks = diagnostics.split(cls.getLength());
+        List<ClassTable> tables = new ArrayList<ClassTable>();
+        for (Class_ e : cls) {
+            tables.add(new ClassTable(this, (class_c) e, sinks[tables.size()]));
+        }
+        ForkJoinPool.commonPool().invoke(new CheckClasses(tables, 0, tables.size()));
+
+        for (ClassTable t : tables) {
+            diagnostics.merge(t.diagnostics);
+            if (t.failure instanceof RuntimeException) {
+                throw (RuntimeException) t.failure;
+            } else if (t.failure != null) {
+                throw (Error) t.failure;
+            }
+        }
+    }
+
+    /** Checks the classes of tables[from] to tables[to - 1] */
+    private static class CheckClasses extends RecursiveAction {
+        private final List<ClassTable> tables;
+        private final int from;
+        private final int to;
+
+        CheckClasses(List<ClassTable> tables, int from, int to) {
+            this.tables = tables;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new CheckClasses(tables, from, mid),
+                          new CheckClasses(tables, mid, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                ClassTable t = tables.get(i);
+                try {
+                    if (!t.diagnostics.full()) {
+                        t.currentClass.semant(t);
+                    }
+                    // else the classes before this one have too many errors
+                } catch (Diagnostics.LimitReached ex) {
+                    // too many errors; the rest of the class would not
+                    // be reported
+                } catch (RuntimeException ex) {
+                    t.failure = ex;
+                } catch (Error ex) {
+                    t.failure = ex;
+                } finally {
+                    t.diagnostics.finish();
+                }
+            }
+        }
     }
 
     /**
-     * Prints the file name and the line number of the given tree node.
+     * Records an error at the line of the given class, in its file.
      *
-     * Also increments semantic error count.
+     * @param c the class
+     * @param message the error message
+     * @throws Diagnostics.LimitReached if there are too many errors
+     */
+    public void semantError(class_c c, String message) {
+        diagnostics.error(c.getFilename(), c.getLineNumber(), c.getName(), message);
+    }
+
+    /**
+     * Records an error at the line of the given tree node, in the given
+     * file.
      *
      * @param filename the file name
      * @param t        the tree node
-     * @return a print stream to which the rest of the error message is
-     *         to be printed.
-     *
+     * @param message  the error message
+     * @throws Diagnostics.LimitReached if there are too many errors
      */
-    public PrintStream semantError(AbstractSymbol filename, TreeNode t) {
-        errorStream.print(filename + ":" + t.getLineNumber() + ": ");
-        return semantError();
+    public void semantError(AbstractSymbol filename, TreeNode t, String message) {
+        diagnostics.error(filename, t.getLineNumber(),
+                          currentClass == null ? null : currentClass.getName(), message);
     }
 
     /**
-     * Increments semantic error count and returns the print stream for
-     * error messages.
-     *
-     * @return a print stream to which the error message is
-     *         to be printed.
+     * Records an error that has no place in the source.
      *
+     * @param message the error message
+     * @throws Diagnostics.LimitReached if there are too many errors
      */
-    public PrintStream semantError() {
-        semantErrors++;
-        return errorStream;
+    public void semantError(String message) {
+        diagnostics.error(null, 0, null, message);
     }
 
     /** Returns true if there are any static semantic errors. */
     public boolean errors() {
-        return semantErrors != 0;
+        return diagnostics.hasErrors();
     }
 }
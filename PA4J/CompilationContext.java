@@ -0,0 +1,113 @@
+import java.io.File;
+import java.io.InputStream;
+import java.io.PrintStream;
+
+/** The state of one compilation.
+ *
+ * <p>
+ *
+ * A context owns the three string tables of a compilation (see
+ * AbstractTable), its command line flags, the directory its file names
+ * are relative to and the streams it reads and writes in place of
+ * System.in, System.out and System.err.  Nothing else in the compiler keeps
+ * compilation state in static fields, so any number of compilations
+ * can run in one JVM, one after another or at the same time, as long
+ * as each has its own context.  A context itself is not safe for use
+ * by several threads at once.
+ *
+ * <p>
+ *
+ * The well-known symbols of TreeConstants are made once, in the
+ * tables of the predefined context.  A new context starts with copies
+ * of those tables, so every compilation has the well-known symbols at
+ * the same indices, and the symbols can be compared with
+ * <code>==</code> in any compilation.
+ *
+ * @see AbstractTable
+ * @see Flags
+ * */
+class CompilationContext {
+    /** The context whose tables hold the well-known symbols */
+    static final CompilationContext predefined =
+	new CompilationContext(null, null, System.in, System.out, System.err);
+
+    static {
+	// have TreeConstants add its symbols to the predefined tables
+	// before any other context copies them
+	Object init = TreeConstants.Object_;
+    }
+
+    /** The table of string constants */
+    public final StringTable stringtable = new StringTable();
+
+    /** The table of identifiers */
+    public final IdTable idtable = new IdTable();
+
+    /** The table of integer constants */
+    public final IntTable inttable = new IntTable();
+
+    /** The command line flags */
+    public final Flags flags;
+
+    /** The directory that relative file names are taken from, or null
+     * for the current directory */
+    public final File directory;
+
+    /** The standard input of the compilation */
+    public final InputStream in;
+
+    /** The standard output of the compilation */
+    public final PrintStream out;
+
+    /** The standard error of the compilation */
+    public final PrintStream err;
+
+    /** Creates the context of a new compilation on the standard
+     * streams of the JVM.
+     *
+     * @param directory the directory that relative file names are
+     *        taken from, or null for the current directory
+     * */
+    public CompilationContext(File directory) {
+	this(predefined, directory, System.in, System.out, System.err);
+    }
+
+    /** Creates the context of a new compilation on the given streams.
+     *
+     * @param directory the directory that relative file names are
+     *        taken from, or null for the current directory
+     * @param in the standard input of the compilation
+     * @param out the standard output of the compilation
+     * @param err the standard error of the compilation
+     * */
+    public CompilationContext(File directory, InputStream in, PrintStream out, PrintStream err) {
+	this(predefined, directory, in, out, err);
+    }
+
+    private CompilationContext(CompilationContext base, File directory,
+			       InputStream in, PrintStream out, PrintStream err) {
+	this.directory = directory;
+	this.in = in;
+	this.out = out;
+	this.err = err;
+	this.flags = new Flags(err);
+	if (base != null) {
+	    stringtable.copyFrom(base.stringtable);
+	    idtable.copyFrom(base.idtable);
+	    inttable.copyFrom(base.inttable);
+	}
+    }
+
+    /** Returns the file with the given name, relative to directory
+     *
+     * @param filename the name of the file
+     * @return the file
+     * */
+    public File file(String filename) {
+	File f = new File(filename);
+	if (directory == null || f.isAbsolute()) {
+	    return f;
+	}
+	return new File(directory, filename);
+    }
+}
@@ -0,0 +1,49 @@
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/** Writes a Cool program whose expressions are nested very deeply.
+ *
+ * <p>
+ *
+ * The program, written to the console, has a let nested depth times
+ * (100000 by default), a sum of depth terms, which parses into a
+ * left-deep tree of plus, and an if nested depth times.  Its trees are
+ * far deeper than the Java stack allows a recursive walk to go, so the
+ * deep-test target runs it through lexer, parser and semant to check
+ * that none of them walk a tree recursively.
+ * */
+class DeepNesting {
+    public static void main(String args[]) {
+	int depth = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+	PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+	out.println("class Main inherits IO {");
+	out.println("    main() : Object {{");
+
+	out.println("\tout_int(");
+	for (int i = 0; i < depth; i++) {
+	    out.println("\tlet x : Int <- " + i + " in");
+	}
+	out.println("\tx);");
+
+	out.println("\tout_int(1");
+	for (int i = 1; i < depth; i++) {
+	    out.println("\t+ 1");
+	}
+	out.println("\t);");
+
+	out.println("\tout_int(");
+	for (int i = 0; i < depth; i++) {
+	    out.println("\tif " + i + " < " + depth + " then");
+	}
+	out.println("\t0");
+	for (int i = 0; i < depth; i++) {
+	    out.println("\telse 1 fi");
+	}
+	out.println("\t);");
+
+	out.println("    }};");
+	out.println("};");
+	out.flush();
+    }
+}
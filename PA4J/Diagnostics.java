@@ -0,0 +1,194 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the semantic errors of a compilation, to be printed when the
+ * check is over.
+ *
+ * <p>
+ *
+ * Errors are kept in the order they are found.  When the classes are
+ * checked on many threads, each class gets a sink of its own from
+ * <code>split</code>, and <code>merge</code> adds their errors to this
+ * one in the order of the classes, so the output is the same as when
+ * the classes are checked one after another.
+ *
+ * <p>
+ *
+ * With a limit of n, only the first n errors are printed, followed by
+ * a note that there were more.  Recording error n + 1 throws
+ * LimitReached to stop the check.  The sink that was split keeps the
+ * count of its own errors and those of the class sinks finished so
+ * far, from the first class on, and a class sink stops as soon as that
+ * count and its own errors make more than n.  Those are all errors
+ * that come before its next one, so the errors it drops are never
+ * among the first n, and once the finished classes make more than n,
+ * the classes after them are not checked at all.  The test takes
+ * constant time.
+ *
+ * @see ClassTable
+ */
+class Diagnostics {
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /** A semantic error */
+    static class Diagnostic {
+        /** The file and line of the error, or null and 0 */
+        final AbstractSymbol filename;
+        final int line;
+        /** The class the error is in, or null */
+        final AbstractSymbol className;
+        final String message;
+
+        Diagnostic(AbstractSymbol filename, int line, AbstractSymbol className,
+                   String message) {
+            this.filename = filename;
+            this.line = line;
+            this.className = className;
+            this.message = message;
+        }
+
+        /** Appends the error as a "file:line: message" line. */
+        void appendTo(StringBuilder b) {
+            if (filename != null) {
+                b.append(filename).append(':').append(line).append(": ");
+            }
+            b.append(message).append(LINE_SEPARATOR);
+        }
+    }
+
+    /** Thrown when there are more errors than the limit */
+    static class LimitReached extends RuntimeException {
+    }
+
+    /** The most errors to report, or 0 for no limit */
+    private final int limit;
+
+    private final List<Diagnostic> errors = new ArrayList<Diagnostic>();
+    /** The size of errors, for sinks on other threads */
+    private volatile int count;
+
+    /** The sink this one was split from, or null */
+    private final Diagnostics root;
+    /** The number of the class of this sink, if it has a root */
+    private final int index;
+
+    /** The sinks split from this one, and which of them are finished */
+    private Diagnostics[] sinks;
+    private boolean[] finished;
+    /** The number of sinks from the first that are finished */
+    private int settled;
+    /** The errors of this sink and of the first settled sinks */
+    private volatile int settledCount;
+
+    /**
+     * Creates an empty sink.
+     *
+     * @param limit the most errors to report, or 0 for no limit
+     */
+    public Diagnostics(int limit) {
+        this(limit, null, 0);
+    }
+
+    private Diagnostics(int limit, Diagnostics root, int index) {
+        this.limit = limit;
+        this.root = root;
+        this.index = index;
+    }
+
+    /**
+     * Records an error.
+     *
+     * @throws LimitReached if this makes more errors than the limit
+     */
+    public void error(AbstractSymbol filename, int line, AbstractSymbol className,
+                      String message) {
+        errors.add(new Diagnostic(filename, line, className, message));
+        count = errors.size();
+        if (limit > 0 && full()) {
+            throw new LimitReached();
+        }
+    }
+
+    /**
+     * Tests whether more errors are known to come before the next error
+     * of this sink than the limit allows.  For a sink made by split,
+     * those are its own and those of its root and of the finished
+     * sinks before it, so a false answer may later become true.
+     */
+    public boolean full() {
+        if (limit == 0) {
+            return false;
+        }
+        int before = root == null ? 0 : root.settledCount;
+        return before + count > limit;
+    }
+
+    /** Returns true if any errors have been recorded. */
+    public boolean hasErrors() {
+        return count != 0;
+    }
+
+    /**
+     * Makes a sink for each of n classes, whose errors come after the
+     * errors of this sink, in the order of the classes.
+     */
+    public synchronized Diagnostics[] split(int n) {
+        sinks = new Diagnostics[n];
+        finished = new boolean[n];
+        settled = 0;
+        settledCount = count;
+        for (int i = 0; i < n; i++) {
+            sinks[i] = new Diagnostics(limit, this, i);
+        }
+        return sinks.clone();
+    }
+
+    /**
+     * Marks a sink made by split as finished: its class has been
+     * checked, or skipped, and it gets no more errors.
+     */
+    public void finish() {
+        root.settle(index);
+    }
+
+    /** Adds the finished sinks from the first on to settledCount */
+    private synchronized void settle(int i) {
+        finished[i] = true;
+        int n = settledCount;
+        while (settled < sinks.length && finished[settled]) {
+            n += sinks[settled].count;
+            settled++;
+        }
+        settledCount = n;
+    }
+
+    /**
+     * Adds the errors of a sink made by split to this one.  The sinks
+     * must be merged in order.
+     *
+     * @throws LimitReached if this makes more errors than the limit
+     */
+    public void merge(Diagnostics sink) {
+        errors.addAll(sink.errors);
+        count = errors.size();
+        if (limit > 0 && count > limit) {
+            throw new LimitReached();
+        }
+    }
+
+    /** Prints the errors, as many as the limit allows, in one write. */
+    public void print(PrintStream s) {
+        int n = limit > 0 ? Math.min(limit, errors.size()) : errors.size();
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            errors.get(i).appendTo(b);
+        }
+        if (n < errors.size()) {
+            b.append("More than ").append(limit).append(" errors").append(LINE_SEPARATOR);
+        }
+        s.print(b);
+        s.flush();
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.Random;
+
+/** A microbenchmark of ClassTable.getLUB on a deep hierarchy.
+ *
+ * <p>
+ *
+ * This builds a chain of classes (1000 deep unless a depth is given on
+ * the command line) with a side class off every tenth, and times the
+ * least upper bound of random pairs of classes two ways: by getLUB,
+ * which finds the lowest common ancestor in the inheritance tree, and
+ * by intersecting the two sets of ancestors, as semant used to.  It
+ * checks that both give the same answers.
+ * */
+class LubBenchmark {
+    public static void main(String args[]) {
+	int depth = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+	CompilationContext ctx = new CompilationContext(null);
+	AbstractSymbol filename = ctx.stringtable.addString("<benchmark>");
+
+	SymbolMap<AbstractSymbol> parents = new SymbolMap<AbstractSymbol>();
+	AbstractSymbol[] names = new AbstractSymbol[depth + depth / 10];
+	int n = 0;
+	Classes classes = new Classes(0);
+	AbstractSymbol parent = TreeConstants.Object_;
+	for (int i = 0; i < depth; i++) {
+	    AbstractSymbol name = ctx.idtable.addString("C" + i);
+	    classes.appendElement(new class_c(0, name, parent, new Features(0), filename));
+	    parents.put(name, parent);
+	    names[n++] = name;
+	    if (i % 10 == 0) {
+		AbstractSymbol side = ctx.idtable.addString("D" + i);
+		classes.appendElement(new class_c(0, side, name, new Features(0), filename));
+		parents.put(side, name);
+		names[n++] = side;
+	    }
+	    parent = name;
+	}
+	classes.appendElement(new class_c(0, TreeConstants.Main, TreeConstants.Object_,
+					  new Features(0), filename));
+	parents.put(TreeConstants.Main, TreeConstants.Object_);
+
+	Diagnostics diagnostics = new Diagnostics(0);
+	ClassTable table = new ClassTable(ctx, classes, diagnostics);
+	if (diagnostics.hasErrors()) {
+	    diagnostics.print(System.err);
+	    System.exit(1);
+	}
+
+	Random random = new Random(143);
+	AbstractSymbol[] a = new AbstractSymbol[4096];
+	AbstractSymbol[] b = new AbstractSymbol[a.length];
+	for (int i = 0; i < a.length; i++) {
+	    a[i] = names[random.nextInt(n)];
+	    b[i] = names[random.nextInt(n)];
+	    if (table.getLUB(a[i], b[i]) != setLUB(parents, a[i], b[i])) {
+		Utilities.fatalError("getLUB(" + a[i] + ", " + b[i] + ") is "
+				     + table.getLUB(a[i], b[i]) + ", not "
+				     + setLUB(parents, a[i], b[i]));
+	    }
+	}
+
+	System.out.println(depth + " classes deep, " + n + " classes");
+	for (int round = 0; round < 3; round++) {
+	    long start = System.nanoTime();
+	    int count = 0;
+	    for (int i = 0; i < a.length; i++) {
+		if (setLUB(parents, a[i], b[i]) == TreeConstants.Object_) count++;
+	    }
+	    long sets = (System.nanoTime() - start) / a.length;
+
+	    start = System.nanoTime();
+	    for (int r = 0; r < 100; r++) {
+		for (int i = 0; i < a.length; i++) {
+		    if (table.getLUB(a[i], b[i]) == TreeConstants.Object_) count++;
+		}
+	    }
+	    long lca = (System.nanoTime() - start) / (100 * a.length);
+	    System.out.println("ancestor sets: " + sets + " ns, lca: " + lca
+			       + " ns per bound (" + count + ")");
+	}
+    }
+
+    /** The least upper bound by intersecting ancestor sets: the common
+     * ancestor that is the parent of no other common ancestor. */
+    static AbstractSymbol setLUB(SymbolMap<AbstractSymbol> parents,
+				 AbstractSymbol a, AbstractSymbol b) {
+	SymbolSet s1 = new SymbolSet();
+	SymbolSet s2 = new SymbolSet();
+	ancestors(parents, a, s1);
+	ancestors(parents, b, s2);
+	SymbolMap<Integer> degrees = new SymbolMap<Integer>();
+	for (AbstractSymbol s : s2) {
+	    if (s1.contains(s)) {
+		degrees.put(s, 0);
+	    }
+	}
+	for (AbstractSymbol s : degrees) {
+	    AbstractSymbol p = parents.get(s);
+	    if (p != null && degrees.containsKey(p)) {
+		degrees.put(p, degrees.get(p) + 1);
+	    }
+	}
+	for (AbstractSymbol s : degrees) {
+	    if (degrees.get(s) == 0) {
+		return s;
+	    }
+	}
+	return TreeConstants.Object_;
+    }
+
+    private static void ancestors(SymbolMap<AbstractSymbol> parents,
+				  AbstractSymbol a, SymbolSet s) {
+	AbstractSymbol p = parents.get(a);
+	if (p != null) {
+	    ancestors(parents, p, s);
+	}
+	s.add(a);
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The methods of one class, its own and the ones it inherits, laid out
+ * like a dispatch table.
+ *
+ * <p>
+ *
+ * The table of a class starts as a copy of its parent's.  Each method
+ * the class defines then either replaces the inherited method of the
+ * same name in its slot or is added at the end, so a method has the
+ * same slot in a class and in all of its descendants.  A lookup by name
+ * is one probe of a SymbolMap.
+ *
+ * @see ClassTable
+ */
+class MethodTable {
+    /** A method definition, with the types of its signature */
+    static class Signature {
+        final method def;
+        /** The types of the formal parameters, in order */
+        final AbstractSymbol[] formals;
+        final AbstractSymbol returnType;
+
+        Signature(method def) {
+            this.def = def;
+            this.formals = new AbstractSymbol[def.formals.getLength()];
+            int i = 0;
+            for (Formal e : def.formals) {
+                formals[i++] = ((formalc) e).type_decl;
+            }
+            this.returnType = def.return_type;
+        }
+    }
+
+    /** The methods, by slot */
+    private final List<Signature> methods;
+    /** The slot of each method, by name */
+    private final SymbolMap<Integer> slots;
+
+    /** Creates the table of a class with no parent. */
+    public MethodTable() {
+        methods = new ArrayList<Signature>();
+        slots = new SymbolMap<Integer>();
+    }
+
+    /** Creates the table of a class, starting with the methods of its
+     * parent. */
+    public MethodTable(MethodTable parent) {
+        methods = new ArrayList<Signature>(parent.methods);
+        slots = new SymbolMap<Integer>();
+        for (AbstractSymbol name : parent.slots) {
+            slots.put(name, parent.slots.get(name));
+        }
+    }
+
+    /** Adds a method of the class, replacing any inherited method of
+     * the same name. */
+    public void define(Signature sig) {
+        Integer slot = slots.get(sig.def.name);
+        if (slot != null) {
+            methods.set(slot.intValue(), sig);
+        } else {
+            slots.put(sig.def.name, methods.size());
+            methods.add(sig);
+        }
+    }
+
+    /** Returns the method of the given name, or null if the class has
+     * none. */
+    public Signature lookup(AbstractSymbol name) {
+        Integer slot = slots.get(name);
+        return slot == null ? null : methods.get(slot.intValue());
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+/** Times several analyses run in one PassManager walk against the
+ * same analyses run one walk each.
+ *
+ * <p>
+ *
+ * This reads an AST from the console, as semant does (with -b, in the
+ * binary format), and runs three read-only analyses over it: a count
+ * of the nodes of each kind, a count of the dispatches and their
+ * arguments, and the highest line number.  It checks that the fused
+ * walk and the separate walks give the same results.
+ * */
+class PassBenchmark {
+    /** The results of the analyses */
+    static class Counts {
+	int[] kinds = new int[BinaryAST.OBJECT + 1];
+	int dispatches;
+	int arguments;
+	int maxLine;
+
+	boolean same(Counts c) {
+	    return Arrays.equals(kinds, c.kinds) && dispatches == c.dispatches
+		&& arguments == c.arguments && maxLine == c.maxLine;
+	}
+    }
+
+    /** Counts the nodes of each kind */
+    private static final Visitor<Void, Counts> kinds = new VisitorAdapter<Void, Counts>() {
+	    public Void visitNode(Visitable node, Counts c) {
+		c.kinds[node.kind()]++;
+		return null;
+	    }
+	};
+
+    /** Counts the dispatches and their arguments */
+    private static final Visitor<Void, Counts> dispatches = new VisitorAdapter<Void, Counts>() {
+	    public Void visit(dispatch node, Counts c) {
+		c.dispatches++;
+		c.arguments += node.actual.getLength();
+		return null;
+	    }
+
+	    public Void visit(static_dispatch node, Counts c) {
+		c.dispatches++;
+		c.arguments += node.actual.getLength();
+		return null;
+	    }
+	};
+
+    /** Finds the highest line number */
+    private static final Visitor<Void, Counts> lines = new VisitorAdapter<Void, Counts>() {
+	    public Void visitNode(Visitable node, Counts c) {
+		c.maxLine = Math.max(c.maxLine, ((TreeNode) node).getLineNumber());
+		return null;
+	    }
+	};
+
+    public static void main(String args[]) throws Exception {
+	CompilationContext ctx = new CompilationContext(null);
+	args = ctx.flags.handleFlags(args);
+	Program program;
+	if (ctx.flags.binary) {
+	    program = new BinaryASTReader(System.in, ctx).readProgram();
+	} else {
+	    program = (Program) new ASTParser(new ASTLexer(new InputStreamReader(System.in), ctx))
+		.parse().value;
+	}
+
+	PassManager<Counts> fused = new PassManager<Counts>().add(kinds).add(dispatches).add(lines);
+	PassManager<Counts> kindsOnly = new PassManager<Counts>().add(kinds);
+	PassManager<Counts> dispatchesOnly = new PassManager<Counts>().add(dispatches);
+	PassManager<Counts> linesOnly = new PassManager<Counts>().add(lines);
+
+	for (int round = 0; round < 3; round++) {
+	    Counts one = null;
+	    long start = System.nanoTime();
+	    for (int r = 0; r < 20; r++) {
+		one = new Counts();
+		fused.run(program, one);
+	    }
+	    long walk = (System.nanoTime() - start) / 20;
+
+	    Counts three = null;
+	    start = System.nanoTime();
+	    for (int r = 0; r < 20; r++) {
+		three = new Counts();
+		kindsOnly.run(program, three);
+		dispatchesOnly.run(program, three);
+		linesOnly.run(program, three);
+	    }
+	    long walks = (System.nanoTime() - start) / 20;
+
+	    if (!one.same(three)) {
+		Utilities.fatalError("the fused walk and the separate walks differ");
+	    }
+	    System.out.println(one.dispatches + " dispatches of " + one.arguments
+			       + " arguments, last line " + one.maxLine + ": one walk "
+			       + walk + " ns, three walks " + walks + " ns");
+	}
+    }
+}
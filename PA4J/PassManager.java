@@ -0,0 +1,221 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs several read-only analyses over a tree in a single walk.
+ *
+ * <p>
+ *
+ * Each analysis is a Visitor that looks at one node at a time and does
+ * not visit children itself; its results are whatever it records as it
+ * goes.  <code>run</code> walks the tree once, in the order
+ * dump_with_types prints it, and at each node calls every analysis in
+ * the order they were added.  So n analyses cost one walk instead of
+ * n, and each call of accept is on a node of a single known kind.
+ * The walk keeps its own stack, so deep trees do not overflow the Java
+ * stack.
+ *
+ * <p>
+ *
+ * The analyses must not change the tree while it is walked.
+ *
+ * @param <C> the context passed to every analysis
+ *
+ * @see Visitor
+ */
+class PassManager<C> {
+    private final List<Visitor<?, C>> passes = new ArrayList<Visitor<?, C>>();
+
+    /** Adds an analysis, to run after the ones added before it. */
+    public PassManager<C> add(Visitor<?, C> pass) {
+        passes.add(pass);
+        return this;
+    }
+
+    /** Walks the tree under root once, running every analysis on each
+     * node. */
+    public void run(Visitable root, C c) {
+        List<Visitable> stack = new ArrayList<Visitable>();
+        List<Visitable> children = new ArrayList<Visitable>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Visitable node = stack.remove(stack.size() - 1);
+            for (int i = 0; i < passes.size(); i++) {
+                node.accept(passes.get(i), c);
+            }
+            node.accept(CHILDREN, children);
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.add(children.get(i));
+            }
+            children.clear();
+        }
+    }
+
+    /** Adds the children of a node to a list, in order */
+    private static final Visitor<Void, List<Visitable>> CHILDREN =
+        new Visitor<Void, List<Visitable>>() {
+            private void addAll(Iterable<? extends Visitable> list, List<Visitable> c) {
+                for (Visitable node : list) {
+                    c.add(node);
+                }
+            }
+
+            public Void visit(programc node, List<Visitable> c) {
+                addAll(node.classes, c);
+                return null;
+            }
+
+            public Void visit(class_c node, List<Visitable> c) {
+                addAll(node.features, c);
+                return null;
+            }
+
+            public Void visit(method node, List<Visitable> c) {
+                addAll(node.formals, c);
+                c.add(node.expr);
+                return null;
+            }
+
+            public Void visit(attr node, List<Visitable> c) {
+                c.add(node.init);
+                return null;
+            }
+
+            public Void visit(formalc node, List<Visitable> c) {
+                return null;
+            }
+
+            public Void visit(branch node, List<Visitable> c) {
+                c.add(node.expr);
+                return null;
+            }
+
+            public Void visit(assign node, List<Visitable> c) {
+                c.add(node.expr);
+                return null;
+            }
+
+            public Void visit(static_dispatch node, List<Visitable> c) {
+                c.add(node.expr);
+                addAll(node.actual, c);
+                return null;
+            }
+
+            public Void visit(dispatch node, List<Visitable> c) {
+                c.add(node.expr);
+                addAll(node.actual, c);
+                return null;
+            }
+
+            public Void visit(cond node, List<Visitable> c) {
+                c.add(node.pred);
+                c.add(node.then_exp);
+                c.add(node.else_exp);
+                return null;
+            }
+
+            public Void visit(loop node, List<Visitable> c) {
+                c.add(node.pred);
+                c.add(node.body);
+                return null;
+            }
+
+            public Void visit(typcase node, List<Visitable> c) {
+                c.add(node.expr);
+                addAll(node.cases, c);
+                return null;
+            }
+
+            public Void visit(block node, List<Visitable> c) {
+                addAll(node.body, c);
+                return null;
+            }
+
+            public Void visit(let node, List<Visitable> c) {
+                c.add(node.init);
+                c.add(node.body);
+                return null;
+            }
+
+            public Void visit(plus node, List<Visitable> c) {
+                c.add(node.e1);
+                c.add(node.e2);
+                return null;
+            }
+
+            public Void visit(sub node, List<Visitable> c) {
+                c.add(node.e1);
+                c.add(node.e2);
+                return null;
+            }
+
+            public Void visit(mul node, List<Visitable> c) {
+                c.add(node.e1);
+                c.add(node.e2);
+                return null;
+            }
+
+            public Void visit(divide node, List<Visitable> c) {
+                c.add(node.e1);
+                c.add(node.e2);
+                return null;
+            }
+
+            public Void visit(neg node, List<Visitable> c) {
+                c.add(node.e1);
+                return null;
+            }
+
+            public Void visit(lt node, List<Visitable> c) {
+                c.add(node.e1);
+                c.add(node.e2);
+                return null;
+            }
+
+            public Void visit(eq node, List<Visitable> c) {
+                c.add(node.e1);
+                c.add(node.e2);
+                return null;
+            }
+
+            public Void visit(leq node, List<Visitable> c) {
+                c.add(node.e1);
+                c.add(node.e2);
+                return null;
+            }
+
+            public Void visit(comp node, List<Visitable> c) {
+                c.add(node.e1);
+                return null;
+            }
+
+            public Void visit(int_const node, List<Visitable> c) {
+                return null;
+            }
+
+            public Void visit(bool_const node, List<Visitable> c) {
+                return null;
+            }
+
+            public Void visit(string_const node, List<Visitable> c) {
+                return null;
+            }
+
+            public Void visit(new_ node, List<Visitable> c) {
+                return null;
+            }
+
+            public Void visit(isvoid node, List<Visitable> c) {
+                c.add(node.e1);
+                return null;
+            }
+
+            public Void visit(no_expr node, List<Visitable> c) {
+                return null;
+            }
+
+            public Void visit(object node, List<Visitable> c) {
+                return null;
+            }
+        };
+}
@@ -19,8 +19,12 @@ ON AN "AS IS" BASIS, AND THE UNIVERSITY OF CALIFORNIA HAS NO OBLIGATION TO
 PROVIDE MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
 */
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.io.PrintStream;
 import java_cup.runtime.Symbol;
 
 /** Static semantics driver class */
@@ -28,15 +32,62 @@ class Semant {
 
     /** Reads AST from from consosle, and outputs the new AST */
     public static void main(String[] args) {
-	args = Flags.handleFlags(args);
+	int status = main(args, null, System.in, System.out, System.err);
+	if (status != 0) {
+	    System.exit(status);
+	}
+    }
+
+    /** Checks the AST on the console for the command line, taking
+     * relative file names from the given directory
+     *
+     * @param args the command line
+     * @param directory the directory, or null for the current one
+     * @param in the tree to check
+     * @param out the stream the typed tree is written to
+     * @param err the stream errors are reported on
+     * @return the exit status, 0 if the program has no errors
+     * */
+    static int main(String[] args, File directory,
+		    InputStream in, PrintStream out, PrintStream err) {
+	try {
+	    check(args, new CompilationContext(directory, in, out, err));
+	    return 0;
+	} catch (CompilationHalted ex) {
+	    ex.printFatal(err);
+	    return ex.status;
+	}
+    }
+
+    /** Does the work of main, which catches the CompilationHalted
+     * that stops it */
+    private static void check(String[] args, CompilationContext ctx) {
+	args = ctx.flags.handleFlags(args);
 	try {
-	    ASTLexer lexer = new ASTLexer(new InputStreamReader(System.in));
-	    ASTParser parser = new ASTParser(lexer);
-	    Object result = parser.parse().value;
-	    ((Program)result).semant();
-	    ((Program)result).dump_with_types(System.out, 0);
+	    Object result;
+	    if (ctx.flags.binary) {
+		result = new BinaryASTReader(ctx.in, ctx).readProgram();
+	    } else {
+		ASTLexer lexer = new ASTLexer(new InputStreamReader(ctx.in), ctx);
+		ASTParser parser = new ASTParser(lexer);
+		result = parser.parse().value;
+	    }
+	    ((Program)result).semant(ctx);
+	    if (ctx.flags.binary) {
+		new BinaryASTWriter(new BufferedOutputStream(ctx.out), ctx)
+		    .writeProgram((Program)result);
+	    } else {
+		DumpStream out = new DumpStream(ctx.out);
+		try {
+		    ((Program)result).dump_with_types(out, 0);
+		} finally {
+		    out.flush();
+		}
+	    }
+	} catch (CompilationHalted ex) {
+	    throw ex;
 	} catch (Exception ex) {
-	    ex.printStackTrace(System.err);
+	    ex.printStackTrace(ctx.err);
 	}
     }
 }
@@ -0,0 +1,168 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * An on-disk cache of checked classes, so that a class that has not
+ * changed since an earlier compilation need not be checked again.
+ *
+ * <p>
+ *
+ * Each entry is one class with its types set, written in the binary AST
+ * format as a program of that one class, with only the symbols the class
+ * refers to in its tables.  It is keyed by a hash of the
+ * class as it comes from the parser (its dump, which has every name,
+ * constant and line number in it) and of the signatures of all classes
+ * in the program: their names, parents, attribute types and method
+ * types.  Those are all that checking a class reads from other
+ * classes, so an entry is valid as long as neither changes.  Changing a
+ * method body invalidates just its class; changing a signature
+ * invalidates every class, since any class may dispatch to the method.
+ *
+ * <p>
+ *
+ * Only classes that check without errors are stored.  A cached class
+ * refers only to symbols the class read from the parser already has,
+ * so reading it does not change the string tables, and the program
+ * comes out the same as if it had been checked.
+ *
+ * @see BinaryAST
+ */
+class SemantCache {
+    /** Changes whenever the entries written by an older compiler would
+     * not do */
+    private static final String VERSION = "semant-cache 1";
+
+    private final CompilationContext ctx;
+    private final File dir;
+    /** The hash of the signatures of the program's classes */
+    private final byte[] signatures;
+
+    /**
+     * Opens the cache in the given directory, creating it if need be.
+     *
+     * @param ctx the compilation
+     * @param dir the cache directory
+     * @param classes the classes of the program
+     */
+    public SemantCache(CompilationContext ctx, File dir, Classes classes) {
+        this.ctx = ctx;
+        this.dir = dir;
+        dir.mkdirs();
+
+        MessageDigest md = digest();
+        PrintStream s = new PrintStream(new DigestOutputStream(OutputStream.nullOutputStream(), md));
+        s.println(VERSION);
+        for (Class_ e : classes) {
+            class_c c = (class_c) e;
+            s.println("class " + c.name + " " + c.parent);
+            for (Feature feature : c.features) {
+                if (feature.kind() == BinaryAST.ATTR) {
+                    attr a = (attr) feature;
+                    s.println("attr " + a.name + " " + a.type_decl);
+                } else {
+                    method m = (method) feature;
+                    s.print("method " + m.name);
+                    for (Formal p : m.formals) {
+                        s.print(" " + ((formalc) p).type_decl);
+                    }
+                    s.println(" : " + m.return_type);
+                }
+            }
+        }
+        s.flush();
+        signatures = md.digest();
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Returns the key of a class that has not been checked yet.
+     */
+    public String key(class_c c) {
+        MessageDigest md = digest();
+        md.update(signatures);
+        PrintStream s = new PrintStream(new DigestOutputStream(OutputStream.nullOutputStream(), md));
+        c.dump_with_types(s, 0);
+        s.flush();
+        StringBuilder b = new StringBuilder();
+        for (byte x : md.digest()) {
+            b.append(Character.forDigit((x >> 4) & 0xf, 16));
+            b.append(Character.forDigit(x & 0xf, 16));
+        }
+        return b.toString();
+    }
+
+    /**
+     * Returns the checked class stored under key, or null if there is
+     * none.
+     */
+    public class_c load(String key) {
+        File file = new File(dir, key + ".ast");
+        if (file.length() == 0) {
+            return null;
+        }
+        try {
+            byte[] data = new byte[(int) file.length()];
+            FileInputStream in = new FileInputStream(file);
+            try {
+                int n = 0;
+                while (n < data.length) {
+                    int k = in.read(data, n, data.length - n);
+                    if (k < 0) {
+                        return null;
+                    }
+                    n += k;
+                }
+            } finally {
+                in.close();
+            }
+            programc p = (programc) new BinaryASTReader(new ByteArrayInputStream(data), ctx)
+                .readProgram();
+            return (class_c) p.classes.getNth(0);
+        } catch (IOException | RuntimeException ex) {
+            // unreadable, truncated or corrupt, e.g. the reader halted on
+            // an empty entry or read a bad index; check the class again
+            return null;
+        }
+    }
+
+    /**
+     * Stores a checked class under key.  The entry is written to a
+     * temporary file and renamed, so other compilations never see part
+     * of it.
+     */
+    public void store(String key, class_c c) {
+        try {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            new BinaryASTWriter(buf, ctx)
+                .writeCompact(new programc(c.getLineNumber(), new Classes(0).appendElement(c)));
+            File tmp = File.createTempFile(key, ".tmp", dir);
+            FileOutputStream out = new FileOutputStream(tmp);
+            try {
+                buf.writeTo(out);
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(new File(dir, key + ".ast"))) {
+                tmp.delete();
+            }
+        } catch (IOException ex) {
+            // the cache is only an optimization
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * An immutable environment mapping symbols to information, such as the
+ * types of the identifiers in scope.
+ *
+ * <p>
+ *
+ * Unlike <a href="SymbolTable.html">SymbolTable</a>, an environment is
+ * never updated in place: <code>add</code> returns a new environment
+ * and leaves the old one unchanged, so "exiting a scope" is simply
+ * going back to the environment that was current before it.  Old and
+ * new environments share all of their structure except the path to
+ * the added symbol, so an environment can be handed to other threads
+ * and extended by each of them independently without copying or
+ * locking.
+ *
+ * <p>
+ *
+ * The bindings are kept in a trie on the bits of the symbol index,
+ * four bits per level.  Both <code>add</code> and <code>lookup</code>
+ * visit one node per level, i.e. O(log n) in the largest index bound,
+ * and <code>add</code> copies only the nodes it visits.  Because
+ * symbols are keyed by index, all symbols in one environment must come
+ * from the same string table.
+ *
+ * @see SymbolTable
+ * @see AbstractSymbol
+ */
+final class SymbolEnv {
+    /** The environment with no bindings. */
+    public static final SymbolEnv EMPTY = new SymbolEnv(null, 0, 0);
+
+    private static final int BITS = 4;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /** The root node, or null if there are no bindings */
+    private final Object[] root;
+    /** The shift of the index bits selecting a slot of the root */
+    private final int shift;
+    private final int size;
+
+    private SymbolEnv(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    /**
+     * Looks up the information bound to a symbol.
+     *
+     * @param sym the symbol
+     * @return the info associated with sym, or null if not found
+     */
+    public Object lookup(AbstractSymbol sym) {
+        int i = sym.index;
+        if ((i >>> shift) >>> BITS != 0) {
+            return null;
+        }
+        Object[] node = root;
+        for (int s = shift; node != null; s -= BITS) {
+            Object o = node[(i >>> s) & MASK];
+            if (s == 0) {
+                return o;
+            }
+            node = (Object[]) o;
+        }
+        return null;
+    }
+
+    /**
+     * Returns an environment that binds a symbol to some information,
+     * hiding any earlier binding of the same symbol.  This environment
+     * is not changed.
+     *
+     * @param sym the symbol
+     * @param info the data associated with sym
+     * @return the extended environment
+     */
+    public SymbolEnv add(AbstractSymbol sym, Object info) {
+        int i = sym.index;
+        Object[] r = root;
+        int s = shift;
+        while ((i >>> s) >>> BITS != 0) {
+            if (r != null) {
+                Object[] up = new Object[1 << BITS];
+                up[0] = r;
+                r = up;
+            }
+            s += BITS;
+        }
+        int n = lookup(sym) == null ? size + 1 : size;
+        return new SymbolEnv(add(r, s, i, info), s, n);
+    }
+
+    /** Returns a copy of node with index i bound to info. */
+    private static Object[] add(Object[] node, int s, int i, Object info) {
+        Object[] copy = node == null
+            ? new Object[1 << BITS] : node.clone();
+        int k = (i >>> s) & MASK;
+        copy[k] = s == 0 ? info : add((Object[]) copy[k], s - BITS, i, info);
+        return copy;
+    }
+
+    /** Returns the number of symbols bound in this environment. */
+    public int size() {
+        return size;
+    }
+}
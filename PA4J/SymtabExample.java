@@ -26,9 +26,10 @@ class SymtabExample {
 	SymbolTable map = new SymbolTable();
 
 	// create some names
-	AbstractSymbol fred = AbstractTable.stringtable.addString("Fred");
-	AbstractSymbol mary = AbstractTable.stringtable.addString("Mary");
-	AbstractSymbol miguel = AbstractTable.stringtable.addString("Miguel");
+	CompilationContext ctx = new CompilationContext(null);
+	AbstractSymbol fred = ctx.stringtable.addString("Fred");
+	AbstractSymbol mary = ctx.stringtable.addString("Mary");
+	AbstractSymbol miguel = ctx.stringtable.addString("Miguel");
 	
 	map.enterScope();
 
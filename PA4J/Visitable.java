@@ -0,0 +1,16 @@
+/**
+ * A node of the AST that a Visitor can visit: a node of one of the
+ * phyla of cool-tree.java, other than the lists.
+ *
+ * @see Visitor
+ */
+interface Visitable {
+    /**
+     * Returns the tag of the node's constructor, one of the node tags
+     * of BinaryAST, for code that switches on the kind of a node.
+     */
+    int kind();
+
+    /** Calls the method of v for this node's constructor. */
+    <R, C> R accept(Visitor<R, C> v, C c);
+}
@@ -0,0 +1,57 @@
+/**
+ * An operation on the nodes of the AST, with one method for each
+ * constructor of cool-tree.java.
+ *
+ * <p>
+ *
+ * <code>node.accept(v, c)</code> calls the method of v for the node's
+ * constructor, so an operation on the whole tree can be written in one
+ * class instead of as a method of every node class.  A visitor does
+ * not visit the children of a node by itself: its methods do that by
+ * calling accept on them, or a PassManager walks the tree and calls
+ * the visitor on every node.
+ *
+ * @param <R> the result of visiting a node
+ * @param <C> the context passed down to each node
+ *
+ * @see Visitable
+ * @see VisitorAdapter
+ * @see PassManager
+ */
+interface Visitor<R, C> {
+    R visit(programc node, C c);
+
+    R visit(class_c node, C c);
+
+    R visit(method node, C c);
+    R visit(attr node, C c);
+
+    R visit(formalc node, C c);
+
+    R visit(branch node, C c);
+
+    R visit(assign node, C c);
+    R visit(static_dispatch node, C c);
+    R visit(dispatch node, C c);
+    R visit(cond node, C c);
+    R visit(loop node, C c);
+    R visit(typcase node, C c);
+    R visit(block node, C c);
+    R visit(let node, C c);
+    R visit(plus node, C c);
+    R visit(sub node, C c);
+    R visit(mul node, C c);
+    R visit(divide node, C c);
+    R visit(neg node, C c);
+    R visit(lt node, C c);
+    R visit(eq node, C c);
+    R visit(leq node, C c);
+    R visit(comp node, C c);
+    R visit(int_const node, C c);
+    R visit(bool_const node, C c);
+    R visit(string_const node, C c);
+    R visit(new_ node, C c);
+    R visit(isvoid node, C c);
+    R visit(no_expr node, C c);
+    R visit(object node, C c);
+}
@@ -0,0 +1,133 @@
+/**
+ * A visitor whose methods all call visitNode, which does nothing, so a
+ * visitor that acts on only a few kinds of nodes overrides only their
+ * methods.
+ *
+ * @see Visitor
+ */
+abstract class VisitorAdapter<R, C> implements Visitor<R, C> {
+    /** Visits a node whose method is not overridden.  Returns null. */
+    public R visitNode(Visitable node, C c) {
+        return null;
+    }
+
+    public R visit(programc node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(class_c node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(method node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(attr node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(formalc node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(branch node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(assign node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(static_dispatch node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(dispatch node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(cond node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(loop node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(typcase node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(block node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(let node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(plus node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(sub node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(mul node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(divide node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(neg node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(lt node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(eq node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(leq node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(comp node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(int_const node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(bool_const node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(string_const node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(new_ node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(isvoid node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(no_expr node, C c) {
+        return visitNode(node, c);
+    }
+
+    public R visit(object node, C c) {
+        return visitNode(node, c);
+    }
+}
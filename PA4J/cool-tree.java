@@ -6,33 +6,32 @@
 //
 //////////////////////////////////////////////////////////
 
-import java.util.Enumeration;
+import java.io.IOException;
 import java.io.PrintStream;
-import java.util.Vector;
 import java.util.List;
-import java.util.Set;
-import java.util.HashSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 
 
 /** Defines simple phylum Program */
-abstract class Program extends TreeNode {
+abstract class Program extends TreeNode implements Visitable {
     protected Program(int lineNumber) {
         super(lineNumber);
     }
     public abstract void dump_with_types(PrintStream out, int n);
-    public abstract void semant();
+    public abstract void dump_binary(BinaryASTWriter out) throws IOException;
+    public abstract void semant(CompilationContext ctx);
 
 }
 
 
 /** Defines simple phylum Class_ */
-abstract class Class_ extends TreeNode {
+abstract class Class_ extends TreeNode implements Visitable {
     protected Class_(int lineNumber) {
         super(lineNumber);
     }
     public abstract void dump_with_types(PrintStream out, int n);
+    public abstract void dump_binary(BinaryASTWriter out) throws IOException;
 
 }
 
@@ -40,13 +39,13 @@ abstract class Class_ extends TreeNode {
 /** Defines list phylum Classes
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Classes extends ListNode {
+class Classes extends ListNode<Class_> {
     public final static Class elementClass = Class_.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Classes(int lineNumber, Vector elements) {
+    protected Classes(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Classes" list */
@@ -54,7 +53,7 @@ class Classes extends ListNode {
         super(lineNumber);
     }
     /** Appends "Class_" element to this list */
-    public Classes appendElement(TreeNode elem) {
+    public Classes appendElement(Class_ elem) {
         addElement(elem);
         return this;
     }
@@ -65,11 +64,12 @@ class Classes extends ListNode {
 
 
 /** Defines simple phylum Feature */
-abstract class Feature extends TreeNode {
+abstract class Feature extends TreeNode implements Visitable {
     protected Feature(int lineNumber) {
         super(lineNumber);
     }
     public abstract void dump_with_types(PrintStream out, int n);
+    public abstract void dump_binary(BinaryASTWriter out) throws IOException;
 
     public abstract void semant(ClassTable classTable);
 }
@@ -78,13 +78,13 @@ abstract class Feature extends TreeNode {
 /** Defines list phylum Features
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Features extends ListNode {
+class Features extends ListNode<Feature> {
     public final static Class elementClass = Feature.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Features(int lineNumber, Vector elements) {
+    protected Features(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Features" list */
@@ -92,7 +92,7 @@ class Features extends ListNode {
         super(lineNumber);
     }
     /** Appends "Feature" element to this list */
-    public Features appendElement(TreeNode elem) {
+    public Features appendElement(Feature elem) {
         addElement(elem);
         return this;
     }
@@ -103,11 +103,12 @@ class Features extends ListNode {
 
 
 /** Defines simple phylum Formal */
-abstract class Formal extends TreeNode {
+abstract class Formal extends TreeNode implements Visitable {
     protected Formal(int lineNumber) {
         super(lineNumber);
     }
     public abstract void dump_with_types(PrintStream out, int n);
+    public abstract void dump_binary(BinaryASTWriter out) throws IOException;
 
 }
 
@@ -115,13 +116,13 @@ abstract class Formal extends TreeNode {
 /** Defines list phylum Formals
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Formals extends ListNode {
+class Formals extends ListNode<Formal> {
     public final static Class elementClass = Formal.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Formals(int lineNumber, Vector elements) {
+    protected Formals(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Formals" list */
@@ -129,7 +130,7 @@ class Formals extends ListNode {
         super(lineNumber);
     }
     /** Appends "Formal" element to this list */
-    public Formals appendElement(TreeNode elem) {
+    public Formals appendElement(Formal elem) {
         addElement(elem);
         return this;
     }
@@ -140,23 +141,44 @@ class Formals extends ListNode {
 
 
 /** Defines simple phylum Expression */
-abstract class Expression extends TreeNode {
+abstract class Expression extends TreeNode implements Visitable, TreeWalk.Node {
     protected Expression(int lineNumber) {
         super(lineNumber);
     }
     private AbstractSymbol type = null;                                 
     public AbstractSymbol get_type() { return type; }           
     public Expression set_type(AbstractSymbol s) { type = s; return this; } 
-    public abstract void dump_with_types(PrintStream out, int n);
+    /** Copies this expression, with an explicit stack
+     * @see TreeWalk */
+    public TreeNode copy() {
+        return TreeWalk.copy(this);
+    }
+    /** Dumps this expression, with an explicit stack
+     * @see TreeWalk */
+    public void dump_with_types(PrintStream out, int n) {
+        TreeWalk.dump_with_types(this, out, n);
+    }
+    /** Writes this expression in the binary AST format, with an
+     * explicit stack
+     * @see TreeWalk */
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        TreeWalk.dump_binary(this, out);
+    }
     public void dump_type(PrintStream out, int n) {
-        if (type != null)
-            { out.println(Utilities.pad(n) + ": " + type.getString()); }
-        else
-            { out.println(Utilities.pad(n) + ": _no_type"); }
+        out.print(Utilities.pad(n));
+        out.print(": ");
+        out.println(type != null ? type.getString() : "_no_type");
     }
 
+    /** Type checks this expression, with an explicit stack
+     * @see TreeWalk */
     public void semant(ClassTable classTable) {
+        TreeWalk.semant(this, classTable);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
         // do nothing
+        return null;
     }
 }
 
@@ -164,13 +186,13 @@ abstract class Expression extends TreeNode {
 /** Defines list phylum Expressions
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Expressions extends ListNode {
+class Expressions extends ListNode<Expression> {
     public final static Class elementClass = Expression.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Expressions(int lineNumber, Vector elements) {
+    protected Expressions(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Expressions" list */
@@ -178,29 +200,37 @@ class Expressions extends ListNode {
         super(lineNumber);
     }
     /** Appends "Expression" element to this list */
-    public Expressions appendElement(TreeNode elem) {
+    public Expressions appendElement(Expression elem) {
         addElement(elem);
         return this;
     }
     public TreeNode copy() {
         return new Expressions(lineNumber, copyElements());
     }
-
-    public void semant(ClassTable classTable) {
-        for (int i = 0; i < getLength(); i++) {
-            Expression e = (Expression) getNth(i);
-            e.semant(classTable);
-        }
-    }
 }
 
 
 /** Defines simple phylum Case */
-abstract class Case extends TreeNode {
+abstract class Case extends TreeNode implements Visitable, TreeWalk.Node {
     protected Case(int lineNumber) {
         super(lineNumber);
     }
-    public abstract void dump_with_types(PrintStream out, int n);
+    /** Copies this branch, with an explicit stack
+     * @see TreeWalk */
+    public TreeNode copy() {
+        return TreeWalk.copy(this);
+    }
+    /** Dumps this branch, with an explicit stack
+     * @see TreeWalk */
+    public void dump_with_types(PrintStream out, int n) {
+        TreeWalk.dump_with_types(this, out, n);
+    }
+    /** Writes this branch in the binary AST format, with an explicit
+     * stack
+     * @see TreeWalk */
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        TreeWalk.dump_binary(this, out);
+    }
 
 }
 
@@ -208,13 +238,13 @@ abstract class Case extends TreeNode {
 /** Defines list phylum Cases
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Cases extends ListNode {
+class Cases extends ListNode<Case> {
     public final static Class elementClass = Case.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Cases(int lineNumber, Vector elements) {
+    protected Cases(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Cases" list */
@@ -222,7 +252,7 @@ class Cases extends ListNode {
         super(lineNumber);
     }
     /** Appends "Case" element to this list */
-    public Cases appendElement(TreeNode elem) {
+    public Cases appendElement(Case elem) {
         addElement(elem);
         return this;
     }
@@ -245,6 +275,7 @@ class programc extends Program {
     public programc(int lineNumber, Classes a1) {
         super(lineNumber);
         classes = a1;
+        classes.trim();
     }
     public TreeNode copy() {
         return new programc(lineNumber, (Classes)classes.copy());
@@ -257,12 +288,29 @@ class programc extends Program {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_program");
-        for (Enumeration e = classes.getElements(); e.hasMoreElements(); ) {
+        out.print(Utilities.pad(n));
+        out.println("_program");
+        for (Class_ e : classes) {
             // sm: changed 'n + 1' to 'n + 2' to match changes elsewhere
-	    ((Class_)e.nextElement()).dump_with_types(out, n + 2);
+	    e.dump_with_types(out, n + 2);
+        }
+    }
+
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        out.writeNode(BinaryAST.PROGRAM, lineNumber);
+        out.writeLength(classes.getLength());
+        for (Class_ e : classes) {
+            e.dump_binary(out);
         }
     }
+
+    public int kind() {
+        return BinaryAST.PROGRAM;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
     /** This method is the entry point to the semantic checker.  You will
         need to complete it in programming assignment 4.
 	<p>
@@ -278,38 +326,73 @@ class programc extends Program {
     	errors. Part (2) can be done in a second stage when you want
 	to test the complete compiler.
     */
-    public void semant() {
+    public void semant(CompilationContext ctx) {
+        Diagnostics diagnostics = new Diagnostics(ctx.flags.max_errors);
+        try {
+            semant(ctx, diagnostics);
+        } catch (Diagnostics.LimitReached ex) {
+            // too many errors; the first ones are reported below
+        } finally {
+            diagnostics.print(ctx.err);
+        }
+
+        if (diagnostics.hasErrors()) {
+            ctx.err.println("Compilation halted due to static semantic errors.");
+            throw new CompilationHalted(1);
+        }
+    }
+
+    private void semant(CompilationContext ctx, Diagnostics diagnostics) {
         /* ClassTable constructor may do some semantic analysis */
-        ClassTable classTable = new ClassTable(classes);
+        ClassTable classTable = new ClassTable(ctx, classes, diagnostics);
 
         if (classTable.errors()) {
-            System.err.println("Compilation halted due to static semantic errors.");
-            System.exit(1);
+            return;
         }
 
         // add all Method to method env
-        for (Enumeration c = classes.getElements(); c.hasMoreElements(); ) {
-            class_c cls = (class_c) c.nextElement();
-            for (Enumeration f = cls.features.getElements(); f.hasMoreElements(); ) {
-                Feature feature = (Feature) f.nextElement();
-                if (feature instanceof method) {
+        for (Class_ c : classes) {
+            class_c cls = (class_c) c;
+            for (Feature feature : cls.features) {
+                if (feature.kind() == BinaryAST.METHOD) {
                     method method = (method) feature;
                     classTable.addMethod(cls.getName(), method);
                 }
             }
         }
+        classTable.buildMethodTables();
+        classTable.buildAttributes();
 
         /* some semantic analysis code may go here */
-        for (Enumeration e = classes.getElements(); e.hasMoreElements(); ) {
-            class_c cls = (class_c) e.nextElement();
-            classTable.setCurrentClass(cls);
-            cls.semant(classTable);
+        if (ctx.flags.cache_dir == null) {
+            classTable.checkClasses(classes);
+            return;
         }
 
-        if (classTable.errors()) {
-            System.err.println("Compilation halted due to static semantic errors.");
-            System.exit(1);
+        // take the classes that have not changed from the cache, and
+        // check the rest
+        SemantCache cache = new SemantCache(ctx, ctx.file(ctx.flags.cache_dir), classes);
+        Classes checked = new Classes(classes.getLineNumber());
+        Classes unchecked = new Classes(classes.getLineNumber());
+        List<String> keys = new ArrayList<String>();
+        for (Class_ e : classes) {
+            class_c cls = (class_c) e;
+            String key = cache.key(cls);
+            class_c cached = cache.load(key);
+            if (cached == null) {
+                unchecked.appendElement(cls);
+                keys.add(key);
+                cached = cls;
+            }
+            checked.appendElement(cached);
+        }
+        classTable.checkClasses(unchecked);
+        if (!classTable.errors()) {
+            for (int i = 0; i < keys.size(); i++) {
+                cache.store(keys.get(i), (class_c) unchecked.getNth(i));
+            }
         }
+        classes = checked;
     }
 
 }
@@ -336,6 +419,7 @@ class class_c extends Class_ {
         name = a1;
         parent = a2;
         features = a3;
+        features.trim();
         filename = a4;
     }
     public TreeNode copy() {
@@ -356,16 +440,40 @@ class class_c extends Class_ {
 
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_class");
+        out.print(Utilities.pad(n));
+        out.println("_class");
         dump_AbstractSymbol(out, n + 2, name);
         dump_AbstractSymbol(out, n + 2, parent);
-        out.print(Utilities.pad(n + 2) + "\"");
+        out.print(Utilities.pad(n + 2));
+        out.print("\"");
         Utilities.printEscapedString(out, filename.getString());
-        out.println("\"\n" + Utilities.pad(n + 2) + "(");
-        for (Enumeration e = features.getElements(); e.hasMoreElements();) {
-	    ((Feature)e.nextElement()).dump_with_types(out, n + 2);
+        out.print("\"\n");
+        out.print(Utilities.pad(n + 2));
+        out.println("(");
+        for (Feature e : features) {
+	    e.dump_with_types(out, n + 2);
+        }
+        out.print(Utilities.pad(n + 2));
+        out.println(")");
+    }
+
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        out.writeNode(BinaryAST.CLASS, lineNumber);
+        out.writeSymbol(name);
+        out.writeSymbol(parent);
+        out.writeSymbol(filename);
+        out.writeLength(features.getLength());
+        for (Feature e : features) {
+            e.dump_binary(out);
         }
-        out.println(Utilities.pad(n + 2) + ")");
+    }
+
+    public int kind() {
+        return BinaryAST.CLASS;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
     }
 
     public void semant(ClassTable classTable) {
@@ -376,8 +484,7 @@ class class_c extends Class_ {
 
 
         // start semantic analysis
-        for (Enumeration e = features.getElements(); e.hasMoreElements(); ) {
-            Feature feature = (Feature) e.nextElement();
+        for (Feature feature : features) {
             feature.semant(classTable);
         }
         classTable.exitScope();
@@ -406,6 +513,7 @@ class method extends Feature {
         super(lineNumber);
         name = a1;
         formals = a2;
+        formals.trim();
         return_type = a3;
         expr = a4;
     }
@@ -423,20 +531,40 @@ class method extends Feature {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_method");
+        out.print(Utilities.pad(n));
+        out.println("_method");
         dump_AbstractSymbol(out, n + 2, name);
-        for (Enumeration e = formals.getElements(); e.hasMoreElements();) {
-	    ((Formal)e.nextElement()).dump_with_types(out, n + 2);
+        for (Formal e : formals) {
+	    e.dump_with_types(out, n + 2);
         }
         dump_AbstractSymbol(out, n + 2, return_type);
 	expr.dump_with_types(out, n + 2);
     }
 
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        out.writeNode(BinaryAST.METHOD, lineNumber);
+        out.writeSymbol(name);
+        out.writeLength(formals.getLength());
+        for (Formal e : formals) {
+            e.dump_binary(out);
+        }
+        out.writeSymbol(return_type);
+        expr.dump_binary(out);
+    }
+
+    public int kind() {
+        return BinaryAST.METHOD;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
     public void semant(ClassTable classTable) {
         classTable.enterScope();
-        Set<AbstractSymbol> set = new HashSet<AbstractSymbol>();
-        for (Enumeration e = formals.getElements(); e.hasMoreElements(); ) {
-            formalc formal = (formalc) e.nextElement();
+        SymbolSet set = new SymbolSet();
+        for (Formal e : formals) {
+            formalc formal = (formalc) e;
             if (formal.name.equals(TreeConstants.self)) {
                 classTable.errorPrint("self cannot be the name of a formal parameter");
             }
@@ -502,12 +630,28 @@ class attr extends Feature {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_attr");
+        out.print(Utilities.pad(n));
+        out.println("_attr");
         dump_AbstractSymbol(out, n + 2, name);
         dump_AbstractSymbol(out, n + 2, type_decl);
 	init.dump_with_types(out, n + 2);
     }
 
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        out.writeNode(BinaryAST.ATTR, lineNumber);
+        out.writeSymbol(name);
+        out.writeSymbol(type_decl);
+        init.dump_binary(out);
+    }
+
+    public int kind() {
+        return BinaryAST.ATTR;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
     public void semant(ClassTable classTable) {
         init.semant(classTable);
         AbstractSymbol t = init.get_type();
@@ -518,8 +662,7 @@ class attr extends Feature {
             t = classTable.getCurrentClass().name;
         }
         if (!classTable.conform(t, type_decl)) {
-            classTable.semantError(classTable.getCurrentClass())
-                .println("Inferred type " + t + " of initialization of attribute "
+            classTable.errorPrint("Inferred type " + t + " of initialization of attribute "
                             + name + " does not conform to declared type " + type_decl);
         }
     }
@@ -556,11 +699,26 @@ class formalc extends Formal {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_formal");
+        out.print(Utilities.pad(n));
+        out.println("_formal");
         dump_AbstractSymbol(out, n + 2, name);
         dump_AbstractSymbol(out, n + 2, type_decl);
     }
 
+    public void dump_binary(BinaryASTWriter out) throws IOException {
+        out.writeNode(BinaryAST.FORMAL, lineNumber);
+        out.writeSymbol(name);
+        out.writeSymbol(type_decl);
+    }
+
+    public int kind() {
+        return BinaryAST.FORMAL;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
 }
 
 
@@ -584,8 +742,13 @@ class branch extends Case {
         type_decl = a2;
         expr = a3;
     }
-    public TreeNode copy() {
-        return new branch(lineNumber, copy_AbstractSymbol(name), copy_AbstractSymbol(type_decl), (Expression)expr.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        if (step == 0) {
+            return expr;
+        }
+        Expression a3 = (Expression) TreeWalk.pop(copies);
+        copies.add(new branch(lineNumber, copy_AbstractSymbol(name), copy_AbstractSymbol(type_decl), a3));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "branch\n");
@@ -595,12 +758,46 @@ class branch extends Case {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_branch");
-        dump_AbstractSymbol(out, n + 2, name);
-        dump_AbstractSymbol(out, n + 2, type_decl);
-	expr.dump_with_types(out, n + 2);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_branch");
+            dump_AbstractSymbol(out, n + 2, name);
+            dump_AbstractSymbol(out, n + 2, type_decl);
+            return expr;
+        }
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.BRANCH, lineNumber);
+            out.writeSymbol(name);
+            out.writeSymbol(type_decl);
+            return expr;
+        }
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.BRANCH;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    /** Checks the expression of the branch in a scope with its
+     * identifier, for typcase.semant. */
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        if (step == 0) {
+            classTable.enterScope();
+            classTable.addObj(name, type_decl);
+            return expr;
+        }
+        classTable.exitScope();
+        return null;
     }
 
 }
@@ -623,8 +820,13 @@ class assign extends Expression {
         name = a1;
         expr = a2;
     }
-    public TreeNode copy() {
-        return new assign(lineNumber, copy_AbstractSymbol(name), (Expression)expr.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        if (step == 0) {
+            return expr;
+        }
+        Expression a2 = (Expression) TreeWalk.pop(copies);
+        copies.add(new assign(lineNumber, copy_AbstractSymbol(name), a2));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "assign\n");
@@ -633,24 +835,47 @@ class assign extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_assign");
-        dump_AbstractSymbol(out, n + 2, name);
-	expr.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_assign");
+            dump_AbstractSymbol(out, n + 2, name);
+            return expr;
+        }
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.ASSIGN, lineNumber);
+            out.writeSymbol(name);
+            return expr;
+        }
+        out.writeType(get_type());
+        return null;
+    }
 
-        expr.semant(classTable);
+    public int kind() {
+        return BinaryAST.ASSIGN;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        if (step == 0) {
+            return expr;
+        }
         // type of expr
         AbstractSymbol exprType = expr.get_type();
         // type of name
         if (name.equals(TreeConstants.self)) {
             classTable.errorPrint("Cannot assign to 'self'");
             set_type(TreeConstants.Object_);
-            return;
+            return null;
         }
         AbstractSymbol objectType = classTable.lookupObj(name);
         if (objectType == null) {
@@ -663,6 +888,7 @@ class assign extends Expression {
             classTable.errorPrint("Type " + exprType + " of assigned expression does not conform to declared type " + objectType + " of identifier " + name);
             set_type(TreeConstants.Object_);
         }
+        return null;
     }
 
 }
@@ -690,9 +916,19 @@ class static_dispatch extends Expression {
         type_name = a2;
         name = a3;
         actual = a4;
+        actual.trim();
     }
-    public TreeNode copy() {
-        return new static_dispatch(lineNumber, (Expression)expr.copy(), copy_AbstractSymbol(type_name), copy_AbstractSymbol(name), (Expressions)actual.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        if (step == 0) {
+            return expr;
+        }
+        if (step <= actual.getLength()) {
+            return actual.getNth(step - 1);
+        }
+        Expressions a4 = new Expressions(actual.getLineNumber(), TreeWalk.pop(copies, actual.getLength()));
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new static_dispatch(lineNumber, a1, copy_AbstractSymbol(type_name), copy_AbstractSymbol(name), a4));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "static_dispatch\n");
@@ -703,66 +939,93 @@ class static_dispatch extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_static_dispatch");
-	expr.dump_with_types(out, n + 2);
-        dump_AbstractSymbol(out, n + 2, type_name);
-        dump_AbstractSymbol(out, n + 2, name);
-        out.println(Utilities.pad(n + 2) + "(");
-        for (Enumeration e = actual.getElements(); e.hasMoreElements();) {
-	    ((Expression)e.nextElement()).dump_with_types(out, n + 2);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_static_dispatch");
+            return expr;
+        }
+        if (step == 1) {
+            dump_AbstractSymbol(out, n + 2, type_name);
+            dump_AbstractSymbol(out, n + 2, name);
+            out.print(Utilities.pad(n + 2));
+            out.println("(");
+        }
+        if (step <= actual.getLength()) {
+            return actual.getNth(step - 1);
         }
-        out.println(Utilities.pad(n + 2) + ")");
-	dump_type(out, n);
+        out.print(Utilities.pad(n + 2));
+        out.println(")");
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.STATIC_DISPATCH, lineNumber);
+            return expr;
+        }
+        if (step == 1) {
+            out.writeSymbol(type_name);
+            out.writeSymbol(name);
+            out.writeLength(actual.getLength());
+        }
+        if (step <= actual.getLength()) {
+            return actual.getNth(step - 1);
+        }
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.STATIC_DISPATCH;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
         // first type check each of the Expressions
-        expr.semant(classTable);
-        for (Enumeration a = actual.getElements(); a.hasMoreElements();) {
-            Expression e = (Expression) a.nextElement();
-            e.semant(classTable);
+        if (step == 0) {
+            return expr;
+        }
+        if (step <= actual.getLength()) {
+            return actual.getNth(step - 1);
         }
         // check if the To conform the T
         if (!classTable.conform(expr.get_type(), type_name)) {
             classTable.errorPrint("Expression type " +
                 expr.get_type() + " does not conform to static dispatch type " + type_name);
             set_type(TreeConstants.Object_);
-            return;
+            return null;
         }
         // get the actual method declaration
-        method method = classTable.lookupMethod(type_name, name);
+        MethodTable.Signature method = classTable.lookupMethod(type_name, name);
 
         // check if the actuals conform the formals
-        List<AbstractSymbol> formals = new ArrayList<AbstractSymbol>();
-        List<AbstractSymbol> actuals = new ArrayList<AbstractSymbol>();
-        for (Enumeration f = method.formals.getElements(); f.hasMoreElements();) {
-            formals.add(((formalc)f.nextElement()).type_decl);
-        }
-        for (Enumeration a = actual.getElements(); a.hasMoreElements();) {
-            actuals.add(((Expression)a.nextElement()).get_type());
-        }
-        // do check:
         AbstractSymbol error = TreeConstants.Object_;
-        if (formals.size() != actuals.size()) {
+        if (method.formals.length != actual.getLength()) {
             classTable.errorPrint("Method " + name + " called with wrong number of arguments.");
             set_type(error);
-            return;
+            return null;
         }
-        for (int i = 0; i < formals.size(); i++) {
-            if (!classTable.conform(actuals.get(i), formals.get(i))) {
+        for (int i = 0; i < method.formals.length; i++) {
+            Expression e = actual.getNth(i);
+            if (!classTable.conform(e.get_type(), method.formals[i])) {
                 classTable.errorPrint("Method " + name + " called with wrong argument type.");
                 set_type(error);
-                return;
+                return null;
             }
         }
         // set the type, if the return type is SELF_TYPE, set it to type of expr
-        if (method.return_type == TreeConstants.SELF_TYPE) {
+        if (method.returnType == TreeConstants.SELF_TYPE) {
             set_type(expr.get_type());
-            return;
+            return null;
         }
-        set_type(method.return_type);
+        set_type(method.returnType);
+        return null;
     }
 
 }
@@ -787,9 +1050,19 @@ class dispatch extends Expression {
         expr = a1;
         name = a2;
         actual = a3;
+        actual.trim();
     }
-    public TreeNode copy() {
-        return new dispatch(lineNumber, (Expression)expr.copy(), copy_AbstractSymbol(name), (Expressions)actual.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        if (step == 0) {
+            return expr;
+        }
+        if (step <= actual.getLength()) {
+            return actual.getNth(step - 1);
+        }
+        Expressions a3 = new Expressions(actual.getLineNumber(), TreeWalk.pop(copies, actual.getLength()));
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new dispatch(lineNumber, a1, copy_AbstractSymbol(name), a3));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "dispatch\n");
@@ -799,67 +1072,95 @@ class dispatch extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_dispatch");
-	expr.dump_with_types(out, n + 2);
-        dump_AbstractSymbol(out, n + 2, name);
-        out.println(Utilities.pad(n + 2) + "(");
-        for (Enumeration e = actual.getElements(); e.hasMoreElements();) {
-	    ((Expression)e.nextElement()).dump_with_types(out, n + 2);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_dispatch");
+            return expr;
+        }
+        if (step == 1) {
+            dump_AbstractSymbol(out, n + 2, name);
+            out.print(Utilities.pad(n + 2));
+            out.println("(");
         }
-        out.println(Utilities.pad(n + 2) + ")");
-	dump_type(out, n);
+        if (step <= actual.getLength()) {
+            return actual.getNth(step - 1);
+        }
+        out.print(Utilities.pad(n + 2));
+        out.println(")");
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        expr.semant(classTable);
-        actual.semant(classTable);
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.DISPATCH, lineNumber);
+            return expr;
+        }
+        if (step == 1) {
+            out.writeSymbol(name);
+            out.writeLength(actual.getLength());
+        }
+        if (step <= actual.getLength()) {
+            return actual.getNth(step - 1);
+        }
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.DISPATCH;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        if (step == 0) {
+            return expr;
+        }
+        if (step <= actual.getLength()) {
+            return actual.getNth(step - 1);
+        }
 
         // lookup method, if the type is SELF_TYPE, set it to current class
         AbstractSymbol type = expr.get_type();
         if (type.equals(TreeConstants.SELF_TYPE)) {
             type = classTable.getCurrentClass().name;
         }
-        method method = classTable.lookupMethod(type, name);
+        MethodTable.Signature method = classTable.lookupMethod(type, name);
         if (method == null) {
             // undefined method error
-            classTable.semantError(classTable.getCurrentClass())
-                .println("Undefined method " + name + " in class " + type);
+            classTable.errorPrint("Undefined method " + name + " in class " + type);
             set_type(TreeConstants.Object_);
-            return;
+            return null;
         }
         // check if the formal params conforms to the actual params
-        List<AbstractSymbol> formals = new ArrayList<AbstractSymbol>();
-        List<AbstractSymbol> actuals = new ArrayList<AbstractSymbol>();
-        for (Enumeration f = method.formals.getElements(); f.hasMoreElements();) {
-            formals.add(((formalc)f.nextElement()).type_decl);
-        }
-        for (Enumeration a = actual.getElements(); a.hasMoreElements();) {
-            actuals.add(((Expression)a.nextElement()).get_type());
-        }
-        // do check:
         AbstractSymbol error = TreeConstants.Object_;
-        if (formals.size() != actuals.size()) {
+        if (method.formals.length != actual.getLength()) {
             classTable.errorPrint("Method " + name + " called with wrong number of arguments.");
             set_type(error);
-            return;
+            return null;
         }
-        for (int i = 0; i < formals.size(); i++) {
-            if (!classTable.conform(actuals.get(i), formals.get(i))) {
+        for (int i = 0; i < method.formals.length; i++) {
+            Expression e = actual.getNth(i);
+            if (!classTable.conform(e.get_type(), method.formals[i])) {
                 classTable.errorPrint("Method " + name + " called with wrong argument type.");
                 set_type(error);
-                return;
+                return null;
             }
         }
 
         // set the type of the dispatch node to the return type
         // special treatment for self
-        if (method.return_type == TreeConstants.SELF_TYPE) {
+        if (method.returnType == TreeConstants.SELF_TYPE) {
             set_type(expr.get_type());
-            return;
+            return null;
         }
-        set_type(method.return_type);
+        set_type(method.returnType);
+        return null;
     }
 
 }
@@ -885,8 +1186,20 @@ class cond extends Expression {
         then_exp = a2;
         else_exp = a3;
     }
-    public TreeNode copy() {
-        return new cond(lineNumber, (Expression)pred.copy(), (Expression)then_exp.copy(), (Expression)else_exp.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        switch (step) {
+        case 0:
+            return pred;
+        case 1:
+            return then_exp;
+        case 2:
+            return else_exp;
+        }
+        Expression a3 = (Expression) TreeWalk.pop(copies);
+        Expression a2 = (Expression) TreeWalk.pop(copies);
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new cond(lineNumber, a1, a2, a3));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "cond\n");
@@ -896,26 +1209,61 @@ class cond extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_cond");
-	pred.dump_with_types(out, n + 2);
-	then_exp.dump_with_types(out, n + 2);
-	else_exp.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_cond");
+            return pred;
+        case 1:
+            return then_exp;
+        case 2:
+            return else_exp;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.COND, lineNumber);
+            return pred;
+        case 1:
+            return then_exp;
+        case 2:
+            return else_exp;
+        }
+        out.writeType(get_type());
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        pred.semant(classTable);
-        then_exp.semant(classTable);
-        else_exp.semant(classTable);
+    public int kind() {
+        return BinaryAST.COND;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        switch (step) {
+        case 0:
+            return pred;
+        case 1:
+            return then_exp;
+        case 2:
+            return else_exp;
+        }
         if (pred.get_type() != TreeConstants.Bool) {
             classTable.errorPrint("Condition must be of type Bool.");
             set_type(TreeConstants.Object_);
-            return;
+            return null;
         }
         AbstractSymbol lub = classTable.getLUB(then_exp.get_type(), else_exp.get_type());
         set_type(lub);
+        return null;
     }
 
 }
@@ -938,8 +1286,17 @@ class loop extends Expression {
         pred = a1;
         body = a2;
     }
-    public TreeNode copy() {
-        return new loop(lineNumber, (Expression)pred.copy(), (Expression)body.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        switch (step) {
+        case 0:
+            return pred;
+        case 1:
+            return body;
+        }
+        Expression a2 = (Expression) TreeWalk.pop(copies);
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new loop(lineNumber, a1, a2));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "loop\n");
@@ -948,22 +1305,52 @@ class loop extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_loop");
-	pred.dump_with_types(out, n + 2);
-	body.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_loop");
+            return pred;
+        case 1:
+            return body;
+        }
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        pred.semant(classTable);
-        body.semant(classTable);
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.LOOP, lineNumber);
+            return pred;
+        case 1:
+            return body;
+        }
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.LOOP;
+    }
 
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        switch (step) {
+        case 0:
+            return pred;
+        case 1:
+            return body;
+        }
         if (pred.get_type() != TreeConstants.Bool) {
             classTable.errorPrint("Loop predicate must be boolean.");
         }
         set_type(TreeConstants.Object_);
+        return null;
     }
 
 }
@@ -985,9 +1372,19 @@ class typcase extends Expression {
         super(lineNumber);
         expr = a1;
         cases = a2;
+        cases.trim();
     }
-    public TreeNode copy() {
-        return new typcase(lineNumber, (Expression)expr.copy(), (Cases)cases.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        if (step == 0) {
+            return expr;
+        }
+        if (step <= cases.getLength()) {
+            return cases.getNth(step - 1);
+        }
+        Cases a2 = new Cases(cases.getLineNumber(), TreeWalk.pop(copies, cases.getLength()));
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new typcase(lineNumber, a1, a2));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "typcase\n");
@@ -996,38 +1393,73 @@ class typcase extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_typcase");
-	expr.dump_with_types(out, n + 2);
-        for (Enumeration e = cases.getElements(); e.hasMoreElements();) {
-	    ((Case)e.nextElement()).dump_with_types(out, n + 2);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_typcase");
+            return expr;
+        }
+        if (step <= cases.getLength()) {
+            return cases.getNth(step - 1);
         }
-	dump_type(out, n);
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        expr.semant(classTable);
-        // gathering the type in the branches
-        List<AbstractSymbol> gets = new ArrayList<AbstractSymbol>();
-        List<AbstractSymbol> types = new ArrayList<AbstractSymbol>();
-        for (Enumeration c = cases.getElements(); c.hasMoreElements();) {
-            branch c1 = (branch) c.nextElement();
-            classTable.enterScope();
-            classTable.addObj(c1.name, c1.type_decl);
-            c1.expr.semant(classTable);
-            classTable.exitScope();
-            if (types.contains(c1.type_decl)) {
-                classTable.errorPrint("Duplicate branch: " + c1.type_decl + " in case statement");
-            }
-            gets.add(c1.expr.get_type());
-            types.add(c1.type_decl);
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.TYPCASE, lineNumber);
+            return expr;
         }
-        AbstractSymbol lub = gets.get(0);
-        for (int i = 1; i < gets.size(); i++) {
-            lub = classTable.getLUB(lub, gets.get(i));
+        if (step == 1) {
+            out.writeLength(cases.getLength());
+        }
+        if (step <= cases.getLength()) {
+            return cases.getNth(step - 1);
+        }
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.TYPCASE;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        if (step == 0) {
+            return expr;
+        }
+        // each branch is checked in its own scope (see branch.semant),
+        // and compared with the ones before it once it is done
+        if (step >= 2) {
+            checkBranch(classTable, step - 2);
+        }
+        if (step <= cases.getLength()) {
+            return cases.getNth(step - 1);
+        }
+        // the type is the lub of the types of the branches
+        AbstractSymbol lub = ((branch) cases.getNth(0)).expr.get_type();
+        for (int i = 1; i < cases.getLength(); i++) {
+            lub = classTable.getLUB(lub, ((branch) cases.getNth(i)).expr.get_type());
         }
         set_type(lub);
+        return null;
+    }
+
+    /** Reports branch i if a branch before it has the same type. */
+    private void checkBranch(ClassTable classTable, int i) {
+        AbstractSymbol type = ((branch) cases.getNth(i)).type_decl;
+        for (int j = 0; j < i; j++) {
+            if (type.equals(((branch) cases.getNth(j)).type_decl)) {
+                classTable.errorPrint("Duplicate branch: " + type + " in case statement");
+                return;
+            }
+        }
     }
 
 }
@@ -1046,9 +1478,15 @@ class block extends Expression {
     public block(int lineNumber, Expressions a1) {
         super(lineNumber);
         body = a1;
+        body.trim();
     }
-    public TreeNode copy() {
-        return new block(lineNumber, (Expressions)body.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        if (step < body.getLength()) {
+            return body.getNth(step);
+        }
+        Expressions a1 = new Expressions(body.getLineNumber(), TreeWalk.pop(copies, body.getLength()));
+        copies.add(new block(lineNumber, a1));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "block\n");
@@ -1056,21 +1494,45 @@ class block extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_block");
-        for (Enumeration e = body.getElements(); e.hasMoreElements();) {
-	    ((Expression)e.nextElement()).dump_with_types(out, n + 2);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_block");
+        }
+        if (step < body.getLength()) {
+            return body.getNth(step);
         }
-	dump_type(out, n);
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        for (Enumeration e = body.getElements(); e.hasMoreElements(); ) {
-            Expression expr = (Expression) e.nextElement();
-            expr.semant(classTable);
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.BLOCK, lineNumber);
+            out.writeLength(body.getLength());
+        }
+        if (step < body.getLength()) {
+            return body.getNth(step);
+        }
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.BLOCK;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        if (step < body.getLength()) {
+            return body.getNth(step);
         }
-        set_type(((Expression) body.getNth(body.getLength() - 1)).get_type());
+        set_type(body.getNth(body.getLength() - 1).get_type());
+        return null;
     }
 
 }
@@ -1099,8 +1561,17 @@ class let extends Expression {
         init = a3;
         body = a4;
     }
-    public TreeNode copy() {
-        return new let(lineNumber, copy_AbstractSymbol(identifier), copy_AbstractSymbol(type_decl), (Expression)init.copy(), (Expression)body.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        switch (step) {
+        case 0:
+            return init;
+        case 1:
+            return body;
+        }
+        Expression a4 = (Expression) TreeWalk.pop(copies);
+        Expression a3 = (Expression) TreeWalk.pop(copies);
+        copies.add(new let(lineNumber, copy_AbstractSymbol(identifier), copy_AbstractSymbol(type_decl), a3, a4));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "let\n");
@@ -1111,30 +1582,61 @@ class let extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_let");
-	dump_AbstractSymbol(out, n + 2, identifier);
-	dump_AbstractSymbol(out, n + 2, type_decl);
-	init.dump_with_types(out, n + 2);
-	body.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_let");
+            dump_AbstractSymbol(out, n + 2, identifier);
+            dump_AbstractSymbol(out, n + 2, type_decl);
+            return init;
+        case 1:
+            return body;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.LET, lineNumber);
+            out.writeSymbol(identifier);
+            out.writeSymbol(type_decl);
+            return init;
+        case 1:
+            return body;
+        }
+        out.writeType(get_type());
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        // identifier cannot be 'self'
-        if (identifier.equals(TreeConstants.self)) {
-            classTable.errorPrint("'self' cannot be bound in 'let' expressions");
-            set_type(TreeConstants.Object_);
-            return;
-        }
-        // init don't use the identifier
-        init.semant(classTable);
+    public int kind() {
+        return BinaryAST.LET;
+    }
 
-        // body may be use the identifier
-        classTable.enterScope();
-        classTable.addObj(identifier, type_decl);
-        body.semant(classTable);
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        switch (step) {
+        case 0:
+            // identifier cannot be 'self'
+            if (identifier.equals(TreeConstants.self)) {
+                classTable.errorPrint("'self' cannot be bound in 'let' expressions");
+                set_type(TreeConstants.Object_);
+                return null;
+            }
+            // init don't use the identifier
+            return init;
+        case 1:
+            // body may be use the identifier
+            classTable.enterScope();
+            classTable.addObj(identifier, type_decl);
+            return body;
+        }
         classTable.exitScope();
 
         set_type(body.get_type());
@@ -1142,12 +1644,13 @@ class let extends Expression {
         // semantic check
         AbstractSymbol t = init.get_type();
         if (t == null) {
-            return;
+            return null;
         }
         // check if the init's type conform to the type_decl
         if (!classTable.conform(t, type_decl)) {
             classTable.errorPrint("init type " + t + " does not conform to type_decl " + type_decl);
         }
+        return null;
     }
 
 }
@@ -1170,8 +1673,17 @@ class plus extends Expression {
         e1 = a1;
         e2 = a2;
     }
-    public TreeNode copy() {
-        return new plus(lineNumber, (Expression)e1.copy(), (Expression)e2.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
+        Expression a2 = (Expression) TreeWalk.pop(copies);
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new plus(lineNumber, a1, a2));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "plus\n");
@@ -1180,27 +1692,56 @@ class plus extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_plus");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_plus");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        e1.semant(classTable);
-        e2.semant(classTable);
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.PLUS, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
+    }
 
+    public int kind() {
+        return BinaryAST.PLUS;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
         AbstractSymbol Int = TreeConstants.Int;
         // type check
         if (e1.get_type() != Int || e2.get_type() != Int) {
-            classTable.semantError(classTable.getCurrentClass())
-                .println("non-Int arguments: " + e1.get_type() + " + " + e2.get_type());
+            classTable.errorPrint("non-Int arguments: " + e1.get_type() + " + " + e2.get_type());
             set_type(TreeConstants.Object_);
-            return;
+            return null;
         }
         set_type(Int);
+        return null;
     }
 
 }
@@ -1223,8 +1764,17 @@ class sub extends Expression {
         e1 = a1;
         e2 = a2;
     }
-    public TreeNode copy() {
-        return new sub(lineNumber, (Expression)e1.copy(), (Expression)e2.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
+        Expression a2 = (Expression) TreeWalk.pop(copies);
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new sub(lineNumber, a1, a2));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "sub\n");
@@ -1233,27 +1783,56 @@ class sub extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_sub");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_sub");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        e1.semant(classTable);
-        e2.semant(classTable);
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.SUB, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
+    }
 
+    public int kind() {
+        return BinaryAST.SUB;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
         AbstractSymbol Int = TreeConstants.Int;
         // type check
         if (e1.get_type() != Int || e2.get_type() != Int) {
-            classTable.semantError(classTable.getCurrentClass())
-                .println("non-Int arguments: " + e1.get_type() + " - " + e2.get_type());
+            classTable.errorPrint("non-Int arguments: " + e1.get_type() + " - " + e2.get_type());
             set_type(TreeConstants.Object_);
-            return;
+            return null;
         }
         set_type(Int);
+        return null;
     }
 }
 
@@ -1275,8 +1854,17 @@ class mul extends Expression {
         e1 = a1;
         e2 = a2;
     }
-    public TreeNode copy() {
-        return new mul(lineNumber, (Expression)e1.copy(), (Expression)e2.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
+        Expression a2 = (Expression) TreeWalk.pop(copies);
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new mul(lineNumber, a1, a2));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "mul\n");
@@ -1285,27 +1873,56 @@ class mul extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_mul");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_mul");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        e1.semant(classTable);
-        e2.semant(classTable);
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.MUL, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.MUL;
+    }
 
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
         AbstractSymbol Int = TreeConstants.Int;
         // type check
         if (e1.get_type() != Int || e2.get_type() != Int) {
-            classTable.semantError(classTable.getCurrentClass())
-                .println("non-Int arguments: " + e1.get_type() + " * " + e2.get_type());
+            classTable.errorPrint("non-Int arguments: " + e1.get_type() + " * " + e2.get_type());
             set_type(TreeConstants.Object_);
-            return;
+            return null;
         }
         set_type(Int);
+        return null;
     }
 }
 
@@ -1327,8 +1944,17 @@ class divide extends Expression {
         e1 = a1;
         e2 = a2;
     }
-    public TreeNode copy() {
-        return new divide(lineNumber, (Expression)e1.copy(), (Expression)e2.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
+        Expression a2 = (Expression) TreeWalk.pop(copies);
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new divide(lineNumber, a1, a2));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "divide\n");
@@ -1337,26 +1963,56 @@ class divide extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_divide");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_divide");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.DIVIDE, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.DIVIDE;
     }
-    public void semant(ClassTable classTable) {
-        e1.semant(classTable);
-        e2.semant(classTable);
 
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
         AbstractSymbol Int = TreeConstants.Int;
         // type check
         if (e1.get_type() != Int || e2.get_type() != Int) {
-            classTable.semantError(classTable.getCurrentClass())
-                .println("non-Int arguments: " + e1.get_type() + " / " + e2.get_type());
+            classTable.errorPrint("non-Int arguments: " + e1.get_type() + " / " + e2.get_type());
             set_type(TreeConstants.Object_);
-            return;
+            return null;
         }
         set_type(Int);
+        return null;
     }
 }
 
@@ -1375,8 +2031,13 @@ class neg extends Expression {
         super(lineNumber);
         e1 = a1;
     }
-    public TreeNode copy() {
-        return new neg(lineNumber, (Expression)e1.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        if (step == 0) {
+            return e1;
+        }
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new neg(lineNumber, a1));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "neg\n");
@@ -1384,21 +2045,45 @@ class neg extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_neg");
-	e1.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_neg");
+            return e1;
+        }
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        e1.semant(classTable);
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.NEG, lineNumber);
+            return e1;
+        }
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.NEG;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        if (step == 0) {
+            return e1;
+        }
         if (e1.get_type() != TreeConstants.Int) {
             classTable.errorPrint("non-Int argument to -");
             set_type(TreeConstants.Object_);
-            return;
+            return null;
         }
         set_type(TreeConstants.Int);
+        return null;
     }
 
 }
@@ -1421,8 +2106,17 @@ class lt extends Expression {
         e1 = a1;
         e2 = a2;
     }
-    public TreeNode copy() {
-        return new lt(lineNumber, (Expression)e1.copy(), (Expression)e2.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
+        Expression a2 = (Expression) TreeWalk.pop(copies);
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new lt(lineNumber, a1, a2));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "lt\n");
@@ -1431,24 +2125,54 @@ class lt extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_lt");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_lt");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        e1.semant(classTable);
-        e2.semant(classTable);
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.LT, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.LT;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
 
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
         if (e1.get_type() != TreeConstants.Int || e2.get_type() != TreeConstants.Int) {
             classTable.errorPrint("non-Int arguments: " + e1.get_type() + " <= " + e2.get_type());
             set_type(TreeConstants.Object_);
-            return;
+            return null;
         }
         set_type(TreeConstants.Bool);
+        return null;
     }
 
 }
@@ -1471,8 +2195,17 @@ class eq extends Expression {
         e1 = a1;
         e2 = a2;
     }
-    public TreeNode copy() {
-        return new eq(lineNumber, (Expression)e1.copy(), (Expression)e2.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
+        Expression a2 = (Expression) TreeWalk.pop(copies);
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new eq(lineNumber, a1, a2));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "eq\n");
@@ -1481,18 +2214,47 @@ class eq extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_eq");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_eq");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        e1.semant(classTable);
-        e2.semant(classTable);
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.EQ, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.EQ;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
 
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
         List<AbstractSymbol> available = Arrays.asList(TreeConstants.Int, TreeConstants.Str,
             TreeConstants.Bool);
 
@@ -1500,9 +2262,10 @@ class eq extends Expression {
                 && e1.get_type() != e2.get_type()){
             classTable.errorPrint("Illegal comparison with a basic type");
             set_type(TreeConstants.Object_);
-            return;
+            return null;
         }
         set_type(TreeConstants.Bool);
+        return null;
     }
 
 }
@@ -1525,8 +2288,17 @@ class leq extends Expression {
         e1 = a1;
         e2 = a2;
     }
-    public TreeNode copy() {
-        return new leq(lineNumber, (Expression)e1.copy(), (Expression)e2.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
+        Expression a2 = (Expression) TreeWalk.pop(copies);
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new leq(lineNumber, a1, a2));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "leq\n");
@@ -1535,24 +2307,54 @@ class leq extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_leq");
-	e1.dump_with_types(out, n + 2);
-	e2.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        switch (step) {
+        case 0:
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_leq");
+            return e1;
+        case 1:
+            return e2;
+        }
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        e1.semant(classTable);
-        e2.semant(classTable);
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        switch (step) {
+        case 0:
+            out.writeNode(BinaryAST.LEQ, lineNumber);
+            return e1;
+        case 1:
+            return e2;
+        }
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.LEQ;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
 
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        switch (step) {
+        case 0:
+            return e1;
+        case 1:
+            return e2;
+        }
         if (e1.get_type() != TreeConstants.Int || e2.get_type() != TreeConstants.Int) {
             classTable.errorPrint("non-Int arguments: " + e1.get_type() + " <= " + e2.get_type());
             set_type(TreeConstants.Object_);
-            return;
+            return null;
         }
         set_type(TreeConstants.Bool);
+        return null;
     }
 }
 
@@ -1571,29 +2373,58 @@ class comp extends Expression {
         super(lineNumber);
         e1 = a1;
     }
-    public TreeNode copy() {
-        return new comp(lineNumber, (Expression)e1.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        if (step == 0) {
+            return e1;
+        }
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new comp(lineNumber, a1));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "comp\n");
         e1.dump(out, n+2);
     }
 
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_comp");
-	e1.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_comp");
+            return e1;
+        }
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        e1.semant(classTable);
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.COMP, lineNumber);
+            return e1;
+        }
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.COMP;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        if (step == 0) {
+            return e1;
+        }
         if (e1.get_type() != TreeConstants.Bool) {
             classTable.errorPrint("non-Bool argument: " + e1.get_type());
             set_type(TreeConstants.Object_);
-            return;
+            return null;
         }
         set_type(TreeConstants.Bool);
+        return null;
     }
 
 }
@@ -1613,8 +2444,9 @@ class int_const extends Expression {
         super(lineNumber);
         token = a1;
     }
-    public TreeNode copy() {
-        return new int_const(lineNumber, copy_AbstractSymbol(token));
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        copies.add(new int_const(lineNumber, copy_AbstractSymbol(token)));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "int_const\n");
@@ -1622,15 +2454,33 @@ class int_const extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_int");
-	dump_AbstractSymbol(out, n + 2, token);
-	dump_type(out, n);
+        out.print(Utilities.pad(n));
+        out.println("_int");
+        dump_AbstractSymbol(out, n + 2, token);
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        out.writeNode(BinaryAST.INT, lineNumber);
+        out.writeSymbol(token);
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.INT;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
         set_type(TreeConstants.Int);
+        return null;
     }
 
 }
@@ -1650,8 +2500,9 @@ class bool_const extends Expression {
         super(lineNumber);
         val = a1;
     }
-    public TreeNode copy() {
-        return new bool_const(lineNumber, copy_Boolean(val));
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        copies.add(new bool_const(lineNumber, copy_Boolean(val)));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "bool_const\n");
@@ -1659,15 +2510,33 @@ class bool_const extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_bool");
-	dump_Boolean(out, n + 2, val);
-	dump_type(out, n);
+        out.print(Utilities.pad(n));
+        out.println("_bool");
+        dump_Boolean(out, n + 2, val);
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        out.writeNode(BinaryAST.BOOL, lineNumber);
+        out.writeBoolean(val);
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.BOOL;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
         set_type(TreeConstants.Bool);
+        return null;
     }
 
 }
@@ -1687,8 +2556,9 @@ class string_const extends Expression {
         super(lineNumber);
         token = a1;
     }
-    public TreeNode copy() {
-        return new string_const(lineNumber, copy_AbstractSymbol(token));
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        copies.add(new string_const(lineNumber, copy_AbstractSymbol(token)));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "string_const\n");
@@ -1696,17 +2566,36 @@ class string_const extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_string");
-	out.print(Utilities.pad(n + 2) + "\"");
-	Utilities.printEscapedString(out, token.getString());
-	out.println("\"");
-	dump_type(out, n);
+        out.print(Utilities.pad(n));
+        out.println("_string");
+        out.print(Utilities.pad(n + 2));
+        out.print("\"");
+        Utilities.printEscapedString(out, token.getString());
+        out.println("\"");
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        out.writeNode(BinaryAST.STRING, lineNumber);
+        out.writeSymbol(token);
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.STRING;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
         set_type(TreeConstants.Str);
+        return null;
     }
 
 }
@@ -1726,8 +2615,9 @@ class new_ extends Expression {
         super(lineNumber);
         type_name = a1;
     }
-    public TreeNode copy() {
-        return new new_(lineNumber, copy_AbstractSymbol(type_name));
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        copies.add(new new_(lineNumber, copy_AbstractSymbol(type_name)));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "new_\n");
@@ -1735,15 +2625,33 @@ class new_ extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_new");
-	dump_AbstractSymbol(out, n + 2, type_name);
-	dump_type(out, n);
+        out.print(Utilities.pad(n));
+        out.println("_new");
+        dump_AbstractSymbol(out, n + 2, type_name);
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        out.writeNode(BinaryAST.NEW, lineNumber);
+        out.writeSymbol(type_name);
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.NEW;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
         set_type(type_name);
+        return null;
     }
 }
 
@@ -1762,8 +2670,13 @@ class isvoid extends Expression {
         super(lineNumber);
         e1 = a1;
     }
-    public TreeNode copy() {
-        return new isvoid(lineNumber, (Expression)e1.copy());
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        if (step == 0) {
+            return e1;
+        }
+        Expression a1 = (Expression) TreeWalk.pop(copies);
+        copies.add(new isvoid(lineNumber, a1));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "isvoid\n");
@@ -1771,16 +2684,40 @@ class isvoid extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
-        dump_line(out, n);
-        out.println(Utilities.pad(n) + "_isvoid");
-	e1.dump_with_types(out, n + 2);
-	dump_type(out, n);
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
+        if (step == 0) {
+            dump_line(out, n);
+            out.print(Utilities.pad(n));
+            out.println("_isvoid");
+            return e1;
+        }
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
-        e1.semant(classTable);
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        if (step == 0) {
+            out.writeNode(BinaryAST.ISVOID, lineNumber);
+            return e1;
+        }
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.ISVOID;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
+        if (step == 0) {
+            return e1;
+        }
         set_type(TreeConstants.Bool);
+        return null;
     }
 }
 
@@ -1796,18 +2733,35 @@ class no_expr extends Expression {
     public no_expr(int lineNumber) {
         super(lineNumber);
     }
-    public TreeNode copy() {
-        return new no_expr(lineNumber);
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        copies.add(new no_expr(lineNumber));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "no_expr\n");
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_no_expr");
-	dump_type(out, n);
+        out.print(Utilities.pad(n));
+        out.println("_no_expr");
+        dump_type(out, n);
+        return null;
+    }
+
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        out.writeNode(BinaryAST.NO_EXPR, lineNumber);
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.NO_EXPR;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
     }
 
 }
@@ -1827,8 +2781,9 @@ class object extends Expression {
         super(lineNumber);
         name = a1;
     }
-    public TreeNode copy() {
-        return new object(lineNumber, copy_AbstractSymbol(name));
+    public TreeWalk.Node copy(int step, List<TreeNode> copies) {
+        copies.add(new object(lineNumber, copy_AbstractSymbol(name)));
+        return null;
     }
     public void dump(PrintStream out, int n) {
         out.print(Utilities.pad(n) + "object\n");
@@ -1836,27 +2791,44 @@ class object extends Expression {
     }
 
     
-    public void dump_with_types(PrintStream out, int n) {
+    public TreeWalk.Node dump_with_types(PrintStream out, int n, int step) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_object");
-	dump_AbstractSymbol(out, n + 2, name);
-	dump_type(out, n);
+        out.print(Utilities.pad(n));
+        out.println("_object");
+        dump_AbstractSymbol(out, n + 2, name);
+        dump_type(out, n);
+        return null;
     }
 
-    public void semant(ClassTable classTable) {
+    public TreeWalk.Node dump_binary(BinaryASTWriter out, int step) throws IOException {
+        out.writeNode(BinaryAST.OBJECT, lineNumber);
+        out.writeSymbol(name);
+        out.writeType(get_type());
+        return null;
+    }
+
+    public int kind() {
+        return BinaryAST.OBJECT;
+    }
+
+    public <R, C> R accept(Visitor<R, C> v, C c) {
+        return v.visit(this, c);
+    }
+
+    public TreeWalk.Node semant(ClassTable classTable, int step) {
         // special case: self
         if (name.equals(TreeConstants.self)) {
             set_type(TreeConstants.SELF_TYPE);
-            return;
+            return null;
         }
 
         AbstractSymbol type = classTable.lookupObj(name);
         if (type == null) {
-            classTable.semantError(classTable.getCurrentClass())
-                .println("Undeclared identifier: " + name);
+            classTable.errorPrint("Undeclared identifier: " + name);
             type = TreeConstants.Object_;
         }
         set_type(type);
+        return null;
     }
 
 }
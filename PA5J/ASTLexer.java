@@ -17,6 +17,8 @@ class ASTLexer implements java_cup.runtime.Scanner {
 
     StringBuffer buf = new StringBuffer();
     int line() { return yyline; }
+    // The compilation whose string tables the symbols go into
+    CompilationContext ctx;
 	private java.io.BufferedReader yy_reader;
 	private int yy_buffer_index;
 	private int yy_buffer_read;
@@ -43,6 +45,12 @@ class ASTLexer implements java_cup.runtime.Scanner {
 		yy_reader = new java.io.BufferedReader(new java.io.InputStreamReader(instream));
 	}
 
+	// Lexes an AST for the given compilation.
+	ASTLexer (java.io.Reader reader, CompilationContext ctx) {
+		this (reader);
+		this.ctx = ctx;
+	}
+
 	private ASTLexer () {
 		yy_buffer = new char[YY_BUFFER_SIZE];
 		yy_buffer_read = 0;
@@ -455,12 +463,12 @@ class ASTLexer implements java_cup.runtime.Scanner {
 						break;
 					case 3:
 						{ return new Symbol(ASTConstants.INT_CONST,
-					    AbstractTable.inttable.addString(yytext())); }
+					    ctx.inttable.addString(yytext())); }
 					case -4:
 						break;
 					case 4:
 						{ return new Symbol(ASTConstants.ID,
-					    AbstractTable.idtable.addString(yytext())); }
+					    ctx.idtable.addString(yytext())); }
 					case -5:
 						break;
 					case 5:
@@ -615,7 +623,7 @@ class ASTLexer implements java_cup.runtime.Scanner {
 					case 42:
 						{ yybegin(YYINITIAL);
                           return new Symbol(ASTConstants.STR_CONST, 
-					    AbstractTable.stringtable.addString(buf.toString())); }
+					    ctx.stringtable.addString(buf.toString())); }
 					case -43:
 						break;
 					case 43:
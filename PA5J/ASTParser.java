@@ -209,8 +209,9 @@ public class ASTParser extends java_cup.runtime.lr_parser {
 
 
     public void syntax_error(Symbol cur_token) {
-        System.err.println("??? unexpected error in ast parsing: " + ((ASTLexer)getScanner()).line());
-	System.exit(1);
+        ASTLexer lexer = (ASTLexer)getScanner();
+        lexer.ctx.err.println("??? unexpected error in ast parsing: " + lexer.line());
+	throw new CompilationHalted(1);
     }
 
     public void unrecovered_syntax_error(Symbol cur_token) {
@@ -786,7 +787,7 @@ class CUP$ASTParser$actions {
           case 2: // program ::= 
             {
               program RESULT =null;
-		 RESULT = null; System.exit(1); 
+		 RESULT = null; if (true) throw new CompilationHalted(1); 
               CUP$ASTParser$result = parser.getSymbolFactory().newSymbol("program",0, RESULT);
             }
           return CUP$ASTParser$result;
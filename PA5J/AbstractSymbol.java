@@ -95,6 +95,16 @@ abstract class AbstractSymbol {
 	    ((AbstractSymbol)another).index == this.index;
     }
 
+    /** Returns a hash code consistent with equals.
+     *
+     * Symbol indices are small and dense, so the index itself is used.
+     *
+     * @return the index of this symbol in its table
+     * */
+    public int hashCode() {
+	return index;
+    }
+
     /** Returns the string representation of this symbol. */
     public String getString() {
 	return str;
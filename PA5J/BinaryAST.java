@@ -0,0 +1,61 @@
+/** Constants of the binary AST format, which the parser and the
+ * semantic analyzer write in place of the text of dump_with_types when
+ * run with <code>-b</code>.
+ *
+ * <p>
+ *
+ * A stream starts with the bytes of MAGIC.  All numbers are unsigned
+ * LEB128 varints, and a string is its length followed by its
+ * characters, each as a varint.  Next come the id, int and string
+ * tables of the writer, each as a count followed by that many strings,
+ * in index order.  The tree follows in the same order as
+ * dump_with_types prints it.  Each node is a tag below and its line
+ * number, followed by its fields:
+ *
+ * <ul>
+ * <li> a symbol is its index in the writer's table for that field;
+ * <li> the type of an expression is its index plus one, or 0 if the
+ *      expression has no type;
+ * <li> a Boolean is 0 or 1;
+ * <li> a list is its length followed by its elements.
+ * </ul>
+ *
+ * @see BinaryASTWriter
+ * @see BinaryASTReader
+ * */
+class BinaryAST {
+    /** The first bytes of every binary AST stream */
+    static final byte[] MAGIC = { 0, 'C', 'A', 'S' };
+
+    /* node tags, one per constructor of cool-tree.java */
+    static final int PROGRAM = 1;
+    static final int CLASS = 2;
+    static final int METHOD = 3;
+    static final int ATTR = 4;
+    static final int FORMAL = 5;
+    static final int BRANCH = 6;
+    static final int ASSIGN = 7;
+    static final int STATIC_DISPATCH = 8;
+    static final int DISPATCH = 9;
+    static final int COND = 10;
+    static final int LOOP = 11;
+    static final int TYPCASE = 12;
+    static final int BLOCK = 13;
+    static final int LET = 14;
+    static final int PLUS = 15;
+    static final int SUB = 16;
+    static final int MUL = 17;
+    static final int DIVIDE = 18;
+    static final int NEG = 19;
+    static final int LT = 20;
+    static final int EQ = 21;
+    static final int LEQ = 22;
+    static final int COMP = 23;
+    static final int INT = 24;
+    static final int BOOL = 25;
+    static final int STRING = 26;
+    static final int NEW = 27;
+    static final int ISVOID = 28;
+    static final int NO_EXPR = 29;
+    static final int OBJECT = 30;
+}
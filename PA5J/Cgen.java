@@ -19,6 +19,8 @@ ON AN "AS IS" BASIS, AND THE UNIVERSITY OF CALIFORNIA HAS NO OBLIGATION TO
 PROVIDE MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
 */
 
+import java.io.File;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.PrintStream;
@@ -30,35 +32,73 @@ class Cgen {
 
     /** Reads AST from from consosle, and outputs the assembly code */
     public static void main(String[] args) {
-	args = Flags.handleFlags(args);
+	int status = main(args, null, System.in, System.out, System.err);
+	if (status != 0) {
+	    System.exit(status);
+	}
+    }
+
+    /** Generates code for the AST on the console for the command line,
+     * taking relative file names from the given directory
+     *
+     * @param args the command line
+     * @param directory the directory, or null for the current one
+     * @param in the tree to generate code for
+     * @param out the stream the code is written to unless -o names a file
+     * @param err the stream errors are reported on
+     * @return the exit status, 0 if the code was generated
+     * */
+    static int main(String[] args, File directory,
+		    InputStream in, PrintStream out, PrintStream err) {
 	try {
-	    ASTLexer lexer = new ASTLexer(new InputStreamReader(System.in));
-	    ASTParser parser = new ASTParser(lexer);
-	    Object result = parser.parse().value;
+	    generate(args, new CompilationContext(directory, in, out, err));
+	    return 0;
+	} catch (CompilationHalted ex) {
+	    ex.printFatal(err);
+	    return ex.status;
+	}
+    }
+
+    /** Does the work of main, which catches the CompilationHalted
+     * that stops it */
+    private static void generate(String[] args, CompilationContext ctx) {
+	Flags flags = ctx.flags;
+	args = flags.handleFlags(args);
+	try {
+	    Object result;
+	    if (flags.binary) {
+		result = new BinaryASTReader(ctx.in, ctx).readProgram();
+	    } else {
+		ASTLexer lexer = new ASTLexer(new InputStreamReader(ctx.in), ctx);
+		ASTParser parser = new ASTParser(lexer);
+		result = parser.parse().value;
+	    }
 	    
-	    PrintStream output = System.out;
+	    PrintStream output = ctx.out;
 	    String filename = null;
-	    if (Flags.out_filename == null) {
-		if (Flags.in_filename != null) {
-		    filename = Flags.in_filename.substring(0, 
-							   Flags.in_filename.lastIndexOf('.'))
+	    if (flags.out_filename == null) {
+		if (flags.in_filename != null) {
+		    filename = flags.in_filename.substring(0, 
+							   flags.in_filename.lastIndexOf('.'))
 			+ ".s";
 		}
 	    } else {
-		filename = Flags.out_filename;
+		filename = flags.out_filename;
 	    }
 
 	    if (filename != null) {
 		try {
-		    output = new PrintStream(new FileOutputStream(filename));
+		    output = new PrintStream(new FileOutputStream(ctx.file(filename)));
 		} catch (IOException ex) {
 		    Utilities.fatalError("Cannot open output file " + filename);
 		}
 	    }
 
-	    ((Program)result).cgen(output);
+	    ((Program)result).cgen(ctx, output);
+	} catch (CompilationHalted ex) {
+	    throw ex;
 	} catch (Exception ex) {
-	    ex.printStackTrace(System.err);
+	    ex.printStackTrace(ctx.err);
 	}
     }
 }
@@ -33,6 +33,12 @@ class CgenClassTable extends SymbolTable {
     /** All classes in the program, represented as CgenNode */
     private Vector nds;
 
+    /** The CgenNode of each class, by class name */
+    private SymbolMap<CgenNode> classNodes = new SymbolMap<CgenNode>();
+
+    /** The compilation whose program is coded */
+    final CompilationContext ctx;
+
     /** This is the stream to which assembly instructions are output */
     private PrintStream str;
 
@@ -119,17 +125,17 @@ class CgenClassTable extends SymbolTable {
 	str.println(CgenSupport.GLOBAL + "_MemMgr_INITIALIZER");
 	str.println("_MemMgr_INITIALIZER:");
 	str.println(CgenSupport.WORD 
-		    + CgenSupport.gcInitNames[Flags.cgen_Memmgr]);
+		    + CgenSupport.gcInitNames[ctx.flags.cgen_Memmgr]);
 
 	str.println(CgenSupport.GLOBAL + "_MemMgr_COLLECTOR");
 	str.println("_MemMgr_COLLECTOR:");
 	str.println(CgenSupport.WORD 
-		    + CgenSupport.gcCollectNames[Flags.cgen_Memmgr]);
+		    + CgenSupport.gcCollectNames[ctx.flags.cgen_Memmgr]);
 
 	str.println(CgenSupport.GLOBAL + "_MemMgr_TEST");
 	str.println("_MemMgr_TEST:");
 	str.println(CgenSupport.WORD 
-		    + ((Flags.cgen_Memmgr_Test == Flags.GC_TEST) ? "1" : "0"));
+		    + ((ctx.flags.cgen_Memmgr_Test == Flags.GC_TEST) ? "1" : "0"));
     }
 
     /** Emits code to reserve space for and initialize all of the
@@ -141,11 +147,11 @@ class CgenClassTable extends SymbolTable {
      * inttable and producing code for each entry. */
     private void codeConstants() {
 	// Add constants that are required by the code generator.
-	AbstractTable.stringtable.addString("");
-	AbstractTable.inttable.addString("0");
+	ctx.stringtable.addString("");
+	ctx.inttable.addString("0");
 
-	AbstractTable.stringtable.codeStringTable(stringclasstag, str);
-	AbstractTable.inttable.codeStringTable(intclasstag, str);
+	ctx.stringtable.codeStringTable(stringclasstag, ctx.inttable, str);
+	ctx.inttable.codeStringTable(intclasstag, str);
 	codeBools(boolclasstag);
     }
 
@@ -157,7 +163,7 @@ class CgenClassTable extends SymbolTable {
      * */
     private void installBasicClasses() {
 	AbstractSymbol filename 
-	    = AbstractTable.stringtable.addString("<basic class>");
+	    = ctx.stringtable.addString("<basic class>");
 	
 	// A few special class names are installed in the lookup table
 	// but not the class list.  Thus, these classes exist, but are
@@ -166,29 +172,29 @@ class CgenClassTable extends SymbolTable {
 	// SELF_TYPE is the self class; it cannot be redefined or
 	// inherited.  prim_slot is a class known to the code generator.
 
-	addId(TreeConstants.No_class,
-	      new CgenNode(new class_(0,
-				      TreeConstants.No_class,
-				      TreeConstants.No_class,
-				      new Features(0),
-				      filename),
-			   CgenNode.Basic, this));
-
-	addId(TreeConstants.SELF_TYPE,
-	      new CgenNode(new class_(0,
-				      TreeConstants.SELF_TYPE,
-				      TreeConstants.No_class,
-				      new Features(0),
-				      filename),
-			   CgenNode.Basic, this));
+	classNodes.put(TreeConstants.No_class,
+		       new CgenNode(new class_(0,
+					       TreeConstants.No_class,
+					       TreeConstants.No_class,
+					       new Features(0),
+					       filename),
+				    CgenNode.Basic, this));
+
+	classNodes.put(TreeConstants.SELF_TYPE,
+		       new CgenNode(new class_(0,
+					       TreeConstants.SELF_TYPE,
+					       TreeConstants.No_class,
+					       new Features(0),
+					       filename),
+				    CgenNode.Basic, this));
 	
-	addId(TreeConstants.prim_slot,
-	      new CgenNode(new class_(0,
-				      TreeConstants.prim_slot,
-				      TreeConstants.No_class,
-				      new Features(0),
-				      filename),
-			   CgenNode.Basic, this));
+	classNodes.put(TreeConstants.prim_slot,
+		       new CgenNode(new class_(0,
+					       TreeConstants.prim_slot,
+					       TreeConstants.No_class,
+					       new Features(0),
+					       filename),
+				    CgenNode.Basic, this));
 
 	// The Object class has no parent class. Its methods are
 	//        cool_abort() : Object    aborts the program
@@ -343,18 +349,18 @@ class CgenClassTable extends SymbolTable {
     // The following creates an inheritance graph from
     // a list of classes.  The graph is implemented as
     // a tree of `CgenNode', and class names are placed
-    // in the base class symbol table.
+    // in the classNodes map.
     
     private void installClass(CgenNode nd) {
 	AbstractSymbol name = nd.getName();
-	if (probe(name) != null) return;
+	if (classNodes.containsKey(name)) return;
 	nds.addElement(nd);
-	addId(name, nd);
+	classNodes.put(name, nd);
     }
 
     private void installClasses(Classes cs) {
-        for (Enumeration e = cs.getElements(); e.hasMoreElements(); ) {
-	    installClass(new CgenNode((Class_)e.nextElement(), 
+        for (Class_ c : cs) {
+	    installClass(new CgenNode(c, 
 				       CgenNode.NotBasic, this));
         }
     }
@@ -366,13 +372,14 @@ class CgenClassTable extends SymbolTable {
     }
 
     private void setRelations(CgenNode nd) {
-	CgenNode parent = (CgenNode)probe(nd.getParent());
+	CgenNode parent = classNodes.get(nd.getParent());
 	nd.setParentNd(parent);
 	parent.addChild(nd);
     }
 
     /** Constructs a new class table and invokes the code generator */
-    public CgenClassTable(Classes cls, PrintStream str) {
+    public CgenClassTable(CompilationContext ctx, Classes cls, PrintStream str) {
+	this.ctx = ctx;
 	nds = new Vector();
 
 	this.str = str;
@@ -382,7 +389,7 @@ class CgenClassTable extends SymbolTable {
 	boolclasstag =   0 /* Change to your Bool class tag here */;
 
 	enterScope();
-	if (Flags.cgen_debug) System.out.println("Building CgenClassTable");
+	if (ctx.flags.cgen_debug) ctx.out.println("Building CgenClassTable");
 	
 	installBasicClasses();
 	installClasses(cls);
@@ -396,13 +403,13 @@ class CgenClassTable extends SymbolTable {
     /** This method is the meat of the code generator.  It is to be
         filled in programming assignment 5 */
     public void code() {
-	if (Flags.cgen_debug) System.out.println("coding global data");
+	if (ctx.flags.cgen_debug) ctx.out.println("coding global data");
 	codeGlobalData();
 
-	if (Flags.cgen_debug) System.out.println("choosing gc");
+	if (ctx.flags.cgen_debug) ctx.out.println("choosing gc");
 	codeSelectGc();
 
-	if (Flags.cgen_debug) System.out.println("coding constants");
+	if (ctx.flags.cgen_debug) ctx.out.println("coding constants");
 	codeConstants();
 
 	//                 Add your code to emit
@@ -410,7 +417,7 @@ class CgenClassTable extends SymbolTable {
 	//                   - class_nameTab
 	//                   - dispatch tables
 
-	if (Flags.cgen_debug) System.out.println("coding global text");
+	if (ctx.flags.cgen_debug) ctx.out.println("coding global text");
 	codeGlobalText();
 
 	//                 Add your code to emit
@@ -421,7 +428,7 @@ class CgenClassTable extends SymbolTable {
 
     /** Gets the root of the inheritance tree */
     public CgenNode root() {
-	return (CgenNode)probe(TreeConstants.Object_);
+	return classNodes.get(TreeConstants.Object_);
     }
 }
 			  
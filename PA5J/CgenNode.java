@@ -51,7 +51,7 @@ class CgenNode extends class_ {
 	this.parent = null;
 	this.children = new Vector();
 	this.basic_status = basic_status;
-	AbstractTable.stringtable.addString(name.getString());
+	table.ctx.stringtable.addString(name.getString());
     }
 
     void addChild(CgenNode child) {
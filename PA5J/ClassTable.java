@@ -27,6 +27,7 @@ import java.io.PrintStream;
  * the inheritance graph.  You may use it or not as you like: it is only
  * here to provide a container for the supplied methods.  */
 class ClassTable {
+    private CompilationContext ctx;
     private int semantErrors;
     private PrintStream errorStream;
 
@@ -37,7 +38,7 @@ class ClassTable {
      * */
     private void installBasicClasses() {
 	AbstractSymbol filename 
-	    = AbstractTable.stringtable.addString("<basic class>");
+	    = ctx.stringtable.addString("<basic class>");
 	
 	// The following demonstrates how to create dummy parse trees to
 	// refer to basic Cool classes.  There's no need for method
@@ -192,18 +193,19 @@ class ClassTable {
 
 	// NOT TO BE INCLUDED IN SKELETON
 	
-	Object_class.dump_with_types(System.err, 0);
-	IO_class.dump_with_types(System.err, 0);
-	Int_class.dump_with_types(System.err, 0);
-	Bool_class.dump_with_types(System.err, 0);
-	Str_class.dump_with_types(System.err, 0);
+	Object_class.dump_with_types(ctx.err, 0);
+	IO_class.dump_with_types(ctx.err, 0);
+	Int_class.dump_with_types(ctx.err, 0);
+	Bool_class.dump_with_types(ctx.err, 0);
+	Str_class.dump_with_types(ctx.err, 0);
     }
 	
 
 
-    public ClassTable(Classes cls) {
+    public ClassTable(CompilationContext ctx, Classes cls) {
+	this.ctx = ctx;
 	semantErrors = 0;
-	errorStream = System.err;
+	errorStream = ctx.err;
 	
 	/* fill this in */
     }
@@ -255,7 +257,7 @@ class ClassTable {
 
     // NOT TO BE INCLUDED IN SKELETON
     public static void main(String[] args) {
-	new ClassTable(null).installBasicClasses();
+	new ClassTable(new CompilationContext(null), null).installBasicClasses();
     }
 }
 			  
@@ -0,0 +1,40 @@
+import java.io.PrintStream;
+
+/** Thrown in place of System.exit to stop a compilation, once the
+ * errors that stop it have been reported.
+ *
+ * <p>
+ *
+ * The phase drivers catch it and return its status, and only their
+ * command line entry points exit with it, so a compilation can end
+ * without ending the JVM it runs in (see CoolcServer).
+ *
+ * @see Utilities#fatalError
+ * */
+class CompilationHalted extends RuntimeException {
+    /** The exit status of the compilation */
+    final int status;
+
+    /** The fatal error that stops the compilation, if it has not been
+     * printed yet, or null */
+    final Throwable fatal;
+
+    CompilationHalted(int status) {
+	this(status, null);
+    }
+
+    CompilationHalted(int status, Throwable fatal) {
+	// no stack trace; whoever stops the compilation prints what it needs
+	super("exit " + status, null, false, false);
+	this.status = status;
+	this.fatal = fatal;
+    }
+
+    /** Prints the fatal error, if there is one, to the error stream
+     * of the compilation */
+    void printFatal(PrintStream err) {
+	if (fatal != null) {
+	    fatal.printStackTrace(err);
+	}
+    }
+}
@@ -0,0 +1,221 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/** The whole compiler in one JVM.
+ *
+ * <p>
+ *
+ * This runs the lexer, parser, semantic analyzer and code generator
+ * one after another, as mycoolc does, but without starting a JVM per
+ * phase.  Each phase sees the same command line, so all the usual
+ * flags work.  The phases hand their output to the next phase in
+ * memory, using the binary token and AST formats (see the
+ * <code>-b</code> flag), so nothing is printed and re-parsed as text.
+ *
+ * <p>
+ *
+ * Every assignment directory defines its own AST classes, so each
+ * phase is loaded from its own directory by its own class loader.
+ * The directories are taken from the <code>coolc.path</code> system
+ * property, a list of the lexer, parser, semant and cgen class
+ * directories; by default they are ../PA2J, ../PA3J, ../PA4J and the
+ * current directory.
+ *
+ * <p>
+ *
+ * The phases are loaded once, so a Coolc object can compile many
+ * times (see CoolcServer).  Each run of a phase makes its own
+ * CompilationContext, so no state is left from earlier runs.
+ *
+ * <p>
+ *
+ * A phase cannot be handed the objects of the phase before it, since
+ * its AST classes are not theirs, so the phases pass bytes.  Each run
+ * of a phase is given its standard input, output and error streams,
+ * which it keeps in its CompilationContext; the System streams are
+ * left alone, so compilations can run at the same time.
+ *
+ * <p>
+ *
+ * A phase that stops the compilation, after reporting its errors,
+ * ends it with the phase's exit status; the phases do not call
+ * System.exit, so neither does compile (see CompilationHalted).
+ * */
+class Coolc {
+    /** The main classes of the phases, in order */
+    private static final String[] MAINS = { "Lexer", "Parser", "Semant", "Cgen" };
+
+    private Phase[] phases = new Phase[MAINS.length];
+
+    /** Loads the phases from the given class directories.
+     *
+     * @param dirs the class directories, one per phase
+     * */
+    Coolc(String[] dirs) {
+	for (int i = 0; i < MAINS.length; i++) {
+	    phases[i] = new Phase(dirs[i], MAINS[i]);
+	}
+    }
+
+    /** Returns the class directories named by <code>coolc.path</code> */
+    static String[] classPath() {
+	String sep = File.pathSeparator;
+	String path = System.getProperty("coolc.path",
+					 "../PA2J" + sep + "../PA3J" + sep
+					 + "../PA4J" + sep + ".");
+	String[] dirs = path.split(sep);
+	if (dirs.length != MAINS.length) {
+	    Utilities.fatalError("coolc.path must name four class directories");
+	}
+	return dirs;
+    }
+
+    /** Compiles the files named on the command line */
+    public static void main(String[] args) {
+	int status;
+	try {
+	    status = new Coolc(classPath()).compile(args, null, System.out, System.err);
+	} catch (CompilationHalted ex) {
+	    ex.printFatal(System.err);
+	    status = ex.status;
+	}
+	if (status != 0) {
+	    System.exit(status);
+	}
+    }
+
+    /** Compiles the files named by args, as mycoolc would.
+     *
+     * <p>
+     *
+     * The first phase that fails ends the compilation.  An Error
+     * thrown by a phase, such as a stack overflow, is passed on.
+     *
+     * @param args the command line
+     * @param dir the directory relative file names are taken from, or
+     *        null for the current directory
+     * @param out the standard output of the compilation
+     * @param err the standard error of the compilation
+     * @return the exit status, 0 if every phase succeeded
+     * */
+    int compile(String[] args, File dir, PrintStream out, PrintStream err) {
+	String[] phaseArgs = new String[args.length + 1];
+	System.arraycopy(args, 0, phaseArgs, 0, args.length);
+	phaseArgs[args.length] = "-b";
+
+	byte[] data = new byte[0];
+	try {
+	    for (int i = 0; i < phases.length; i++) {
+		ByteArrayOutputStream output =
+		    i < phases.length - 1 ? new ByteArrayOutputStream() : null;
+		int status = phases[i].run(phaseArgs, dir, new ByteArrayInputStream(data),
+					   output != null ? new PrintStream(output) : out, err);
+		if (status != 0) {
+		    return status;
+		}
+		if (output != null) {
+		    data = output.toByteArray();
+		}
+	    }
+	} catch (CompilationHalted ex) {
+	    // a phase threw something other than an Error
+	    ex.printFatal(err);
+	    return ex.status;
+	}
+	return 0;
+    }
+
+    /** A phase of the compiler, loaded from its class directory */
+    static class Phase {
+	private String dir;
+	private String main;
+	private PhaseLoader loader;
+	private Method mainMethod;
+
+	/** Loads a phase.
+	 *
+	 * @param dir the class directory of the phase
+	 * @param main the name of the main class
+	 * */
+	Phase(String dir, String main) {
+	    this.dir = dir;
+	    this.main = main;
+	    try {
+		loader = new PhaseLoader(new File(dir).toURI().toURL(),
+					 Coolc.class.getClassLoader());
+		mainMethod = loader.loadClass(main)
+		    .getDeclaredMethod("main", String[].class, File.class,
+				       InputStream.class, PrintStream.class, PrintStream.class);
+		// the driver classes are not public
+		mainMethod.setAccessible(true);
+	    } catch (ReflectiveOperationException ex) {
+		Utilities.fatalError("Cannot load " + main + " from " + dir);
+	    } catch (MalformedURLException ex) {
+		Utilities.fatalError("Bad class directory " + dir);
+	    }
+	}
+
+	/** Runs the main class of this phase on the given streams.
+	 *
+	 * @param args the command line
+	 * @param dir the directory relative file names are taken from, or
+	 *        null for the current directory
+	 * @param in the standard input of the phase
+	 * @param out the standard output of the phase
+	 * @param err the standard error of the phase
+	 * @return the exit status of the phase
+	 * */
+	int run(String[] args, File dir, InputStream in, PrintStream out, PrintStream err) {
+	    try {
+		int status = ((Integer)mainMethod.invoke(null, new Object[] {
+			    args.clone(), dir, in, out, err }))
+		    .intValue();
+		out.flush();
+		return status;
+	    } catch (InvocationTargetException ex) {
+		if (ex.getCause() instanceof Error) {
+		    throw (Error)ex.getCause();
+		}
+		ex.getCause().printStackTrace(err);
+		Utilities.fatalError("Unexpected exception in " + main);
+	    } catch (ReflectiveOperationException ex) {
+		Utilities.fatalError("Cannot run " + main + " from " + this.dir);
+	    }
+	    return 1; // not reached; fatalError throws
+	}
+    }
+
+    /** Loads the classes of one phase from its directory before
+     * asking the parent, so that phases with classes of the same name
+     * do not see each other's classes.
+     * */
+    static class PhaseLoader extends URLClassLoader {
+	PhaseLoader(URL dir, ClassLoader parent) {
+	    super(new URL[] { dir }, parent);
+	}
+
+	protected synchronized Class loadClass(String name, boolean resolve)
+	    throws ClassNotFoundException {
+	    Class c = findLoadedClass(name);
+	    if (c == null) {
+		try {
+		    c = findClass(name);
+		} catch (ClassNotFoundException ex) {
+		    c = super.loadClass(name, false);
+		}
+	    }
+	    if (resolve) {
+		resolveClass(c);
+	    }
+	    return c;
+	}
+    }
+}
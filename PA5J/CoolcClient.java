@@ -0,0 +1,62 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/** The client of CoolcServer, to be used in place of mycoolc.
+ *
+ * <p>
+ *
+ * This sends its working directory and command line to the server,
+ * copies the compiler's standard output and standard error to its own,
+ * and exits with the compiler's exit status.
+ *
+ * @see CoolcServer
+ * */
+class CoolcClient {
+    /** Has the server compile the files named on the command line */
+    public static void main(String[] args) {
+	int status = 1;
+	try {
+	    SocketChannel server =
+		SocketChannel.open(UnixDomainSocketAddress.of(CoolcServer.socket()));
+	    try {
+		DataOutputStream out = new DataOutputStream(
+		    new BufferedOutputStream(Channels.newOutputStream(server)));
+		out.writeUTF(System.getProperty("user.dir"));
+		out.writeInt(args.length);
+		for (int i = 0; i < args.length; i++) {
+		    out.writeUTF(args[i]);
+		}
+		out.flush();
+
+		DataInputStream in = new DataInputStream(
+		    new BufferedInputStream(Channels.newInputStream(server)));
+		byte[] buf = new byte[8192];
+		int kind;
+		while ((kind = in.readByte()) != CoolcServer.EXIT) {
+		    OutputStream dest = kind == CoolcServer.OUT ? System.out : System.err;
+		    int len = in.readInt();
+		    if (len > buf.length) {
+			buf = new byte[len];
+		    }
+		    in.readFully(buf, 0, len);
+		    dest.write(buf, 0, len);
+		    dest.flush();
+		}
+		status = in.readInt();
+	    } finally {
+		server.close();
+	    }
+	} catch (IOException ex) {
+	    System.err.println("Cannot reach the compile server at "
+			       + CoolcServer.socket() + ": " + ex.getMessage());
+	}
+	System.exit(status);
+    }
+}
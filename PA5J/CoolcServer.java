@@ -0,0 +1,213 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+
+/** A compile server, which keeps the compiler loaded between
+ * compilations.
+ *
+ * <p>
+ *
+ * The server loads the phases once with Coolc and then compiles on
+ * request, so later compilations run in a JVM whose JIT has already
+ * compiled the lexer, the parser tables and the tree walks.  Requests
+ * come from CoolcClient over a Unix-domain socket, at the path given
+ * by the <code>coolc.socket</code> system property (by default
+ * ~/.coolc/server.sock).  Each client is served on a thread of its
+ * own; Coolc gives every compilation its own streams, so compilations
+ * can run at the same time.
+ *
+ * <p>
+ *
+ * A request is the client's working directory and its command line;
+ * the answer is the standard output and standard error of the
+ * compilation, followed by its exit status.  Each of these is a frame
+ * of a kind byte, a length and the bytes (see OUT, ERR and EXIT).
+ *
+ * <p>
+ *
+ * The phases stop a compilation with CompilationHalted rather than
+ * System.exit, and Coolc returns its status, so an error ends the
+ * compilation but not the server.
+ *
+ * <p>
+ *
+ * Whoever can connect to the socket can compile, and write output
+ * files, as the user running the server.  So the server creates the
+ * directory of the socket with access for its owner only, and will
+ * not start if the directory belongs to another user or others can
+ * use it.
+ * */
+class CoolcServer {
+    /** Frame kinds */
+    static final int EXIT = 0;
+    static final int OUT = 1;
+    static final int ERR = 2;
+
+    /** Returns the socket named by <code>coolc.socket</code> */
+    static Path socket() {
+	String name = System.getProperty("coolc.socket");
+	return name != null ? Paths.get(name)
+	    : Paths.get(System.getProperty("user.home"), ".coolc", "server.sock");
+    }
+
+    /** Creates the directory of the socket if need be, and checks that
+     * it belongs to this user and that no one else can use it.
+     * */
+    private static void secure(Path dir) throws IOException {
+	Set<PosixFilePermission> owner = PosixFilePermissions.fromString("rwx------");
+	if (!Files.exists(dir, LinkOption.NOFOLLOW_LINKS)) {
+	    Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(owner));
+	}
+	UserPrincipal user = dir.getFileSystem().getUserPrincipalLookupService()
+	    .lookupPrincipalByName(System.getProperty("user.name"));
+	if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)
+	    || !Files.getOwner(dir, LinkOption.NOFOLLOW_LINKS).equals(user)
+	    || !Files.getPosixFilePermissions(dir, LinkOption.NOFOLLOW_LINKS).equals(owner)) {
+	    throw new IOException(dir + " must be a directory of "
+				  + user.getName() + " with mode 700");
+	}
+    }
+
+    /** Serves compile requests until the server is killed */
+    public static void main(String[] args) {
+	Coolc compiler = null;
+	ServerSocketChannel server = null;
+	Path socket = socket().toAbsolutePath();
+	try {
+	    compiler = new Coolc(Coolc.classPath());
+	    secure(socket.getParent());
+	    // left by a server that was killed
+	    Files.deleteIfExists(socket);
+	    server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+	    server.bind(UnixDomainSocketAddress.of(socket));
+	    socket.toFile().deleteOnExit();
+	} catch (CompilationHalted ex) {
+	    // the phases could not be loaded
+	    ex.printFatal(System.err);
+	    System.exit(ex.status);
+	} catch (IOException ex) {
+	    System.err.println("Cannot listen on " + socket + ": " + ex.getMessage());
+	    System.exit(1);
+	}
+
+	for (;;) {
+	    try {
+		final Coolc c = compiler;
+		final SocketChannel client = server.accept();
+		new Thread(new Runnable() {
+		    public void run() {
+			try {
+			    try {
+				serve(c, client);
+			    } finally {
+				client.close();
+			    }
+			} catch (IOException ex) {
+			    // the client went away
+			    System.err.println("coolc server: " + ex);
+			}
+		    }
+		}).start();
+	    } catch (IOException ex) {
+		System.err.println("coolc server: " + ex);
+	    }
+	}
+    }
+
+    /** Reads one request from a client and compiles it */
+    private static void serve(Coolc compiler, SocketChannel client) throws IOException {
+	DataInputStream in =
+	    new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+	DataOutputStream out =
+	    new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)));
+	File dir = new File(in.readUTF());
+	String[] args = new String[in.readInt()];
+	for (int i = 0; i < args.length; i++) {
+	    args[i] = in.readUTF();
+	}
+
+	PrintStream cout = new PrintStream(new FrameStream(out, OUT));
+	PrintStream cerr = new PrintStream(new FrameStream(out, ERR), true);
+	int status = 0;
+	try {
+	    status = compiler.compile(args, dir, cout, cerr);
+	} catch (RuntimeException ex) {
+	    ex.printStackTrace(cerr);
+	    status = 1;
+	} catch (Error ex) {
+	    // e.g. a stack overflow in a phase; the next request gets a
+	    // new compilation context
+	    ex.printStackTrace(cerr);
+	    status = 1;
+	} finally {
+	    cout.flush();
+	    cerr.flush();
+	}
+	out.writeByte(EXIT);
+	out.writeInt(status);
+	out.flush();
+    }
+
+    /** An output stream that sends what is written to it as frames of
+     * one kind, one frame per flush.
+     * */
+    static class FrameStream extends OutputStream {
+	private DataOutputStream out;
+	private int kind;
+	private byte[] buf = new byte[8192];
+	private int len = 0;
+
+	FrameStream(DataOutputStream out, int kind) {
+	    this.out = out;
+	    this.kind = kind;
+	}
+
+	public void write(int b) throws IOException {
+	    if (len == buf.length) {
+		flush();
+	    }
+	    buf[len++] = (byte)b;
+	}
+
+	public void write(byte[] b, int off, int n) throws IOException {
+	    while (n > 0) {
+		if (len == buf.length) {
+		    flush();
+		}
+		int k = Math.min(n, buf.length - len);
+		System.arraycopy(b, off, buf, len, k);
+		len += k;
+		off += k;
+		n -= k;
+	    }
+	}
+
+	public void flush() throws IOException {
+	    if (len > 0) {
+		out.writeByte(kind);
+		out.writeInt(len);
+		out.write(buf, 0, len);
+		len = 0;
+	    }
+	    out.flush();
+	}
+    }
+}
@@ -19,7 +19,13 @@ ON AN "AS IS" BASIS, AND THE UNIVERSITY OF CALIFORNIA HAS NO OBLIGATION TO
 PROVIDE MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
 */
 
-/** Command line flags */
+import java.io.PrintStream;
+
+/** Command line flags.  Each compilation has its own flags, kept in
+ * its CompilationContext.
+ *
+ * @see CompilationContext
+ * */
 class Flags {
     /** No garbage collection */
     public static final int GC_NOGC = 0;
@@ -45,35 +51,58 @@ class Flags {
     /** Garbage collector flag (default GC_NOGC)
      * @see #GC_NOGC
      */
-    public static int cgen_Memmgr = GC_NOGC;
+    public int cgen_Memmgr = GC_NOGC;
 
     /** Garbage collector testing flag (default GC_NORMAL)
      * @see #GC_NORMAL
      */
-    public static int cgen_Memmgr_Test = GC_NORMAL;
+    public int cgen_Memmgr_Test = GC_NORMAL;
 
     /** Garbage collector debugging flag (default GC_QUICK)
      * @see #GC_NOGC
      */
-    public static int cgen_Memmgr_Debug = GC_QUICK;
+    public int cgen_Memmgr_Debug = GC_QUICK;
    
     /** Code optimization flag */
-    public static boolean cgen_optimize = false;
+    public boolean cgen_optimize = false;
 
     /** Output filename */
-    public static String out_filename = null;
+    public String out_filename = null;
 
     /** First input filename */
-    public static String in_filename = null;
+    public String in_filename = null;
 
     /** Enable parser debugging */
-    public static boolean parser_debug = false;
+    public boolean parser_debug = false;
 
     /** Enable semantic analysis debugging */
-    public static boolean semant_debug = false;
+    public boolean semant_debug = false;
 
     /** Enable code gen debugging */
-    public static boolean cgen_debug = false;
+    public boolean cgen_debug = false;
+
+    /** Pass tokens and trees between the phases in binary form */
+    public boolean binary = false;
+
+    /** Lex and parse the input files in parallel */
+    public boolean parallel = false;
+
+    /** Stop after this many semantic errors, or 0 for no limit */
+    public int max_errors = 0;
+
+    /** Directory of the cache of checked classes, or null for none */
+    public String cache_dir = null;
+
+    /** Where errors in the flags are reported */
+    private final PrintStream err;
+
+    /** Creates the default flags of a compilation.
+     *
+     * @param err the error stream of the compilation
+     * */
+    Flags(PrintStream err) {
+	this.err = err;
+    }
 
     /**
      * Processes command line flags and extracts filenames to be compiled
@@ -81,15 +110,15 @@ class Flags {
      * @param args the argument array passed to main()
      * @return an array of filenames to be compiled
      * */
-    public static String[] handleFlags(String args[]) {
+    public String[] handleFlags(String args[]) {
 	int filecnt = 0;
 	boolean unknownopt = false;
 	for (int i = 0; i < args.length; i++) {
 	    if (args[i] != null) {
 		if (args[i].charAt(0) == '-') {
 		    if (args[i].length() != 2) {
-			System.err.println("Error in \"" + args[i] + "\".  Flags must be specified one at a time.\n");
-			System.exit(1);
+			err.println("Error in \"" + args[i] + "\".  Flags must be specified one at a time.\n");
+			throw new CompilationHalted(1);
 		    }
 		    // this is a flag
 		    switch (args[i].charAt(1)) {
@@ -111,6 +140,26 @@ class Flags {
 			    unknownopt = true;
 			}
 			break;
+		    case 'e':
+			if ((i+1) < args.length) {
+			    try {
+				max_errors = Integer.parseInt(args[i + 1]);
+			    } catch (NumberFormatException ex) {
+				unknownopt = true;
+			    }
+			    args[i + 1] = null;
+			} else {
+			    unknownopt = true;
+			}
+			break;
+		    case 'i':
+			if ((i+1) < args.length) {
+			    cache_dir = args[i + 1];
+			    args[i + 1] = null;
+			} else {
+			    unknownopt = true;
+			}
+			break;
 		    case 'O':
 			cgen_optimize = true;
 			break;
@@ -123,6 +172,12 @@ class Flags {
 		    case 'c':
 			cgen_debug = true;
 			break;
+		    case 'b':
+			binary = true;
+			break;
+		    case 'j':
+			parallel = true;
+			break;
 		    default:
 			unknownopt = true;
 			break;
@@ -137,8 +192,8 @@ class Flags {
 	}
 
 	if (unknownopt) {
-	    System.err.println("usage: <program> [-OgtT -o outname] [input-files]\n");
-	    System.exit(1);
+	    err.println("usage: <program> [-bjOgtT -o outname -e maxerrors -i cachedir] [input-files]\n");
+	    throw new CompilationHalted(1);
 	}
 
 	String[] res = new String[filecnt];
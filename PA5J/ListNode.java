@@ -20,8 +20,10 @@ PROVIDE MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
 */
 
 import java.io.PrintStream;
-import java.util.Vector;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /** Base class for lists of AST elements.
 
@@ -47,15 +49,12 @@ import java.util.Enumeration;
 
     <p>
     
-    You can use <code>java.util.Enumeration</code> to iterate through
-    lists.  If you are not familiar with that interface, look it up in
-    the Java API documentation.  Here's an example of iterating through
-    a list:
+    A list is <code>Iterable</code> over its element phylum, so the
+    elements can be visited without casting:
 
 <pre>
-  for (Enumeration e = list.getElements(); e.hasMoreElements(); ) {
-    Object n = e.nextElement();
-    ... do something with n ...
+  for (Feature f : features) {
+    ... do something with f ...
   }
 </pre>
 
@@ -67,21 +66,29 @@ import java.util.Enumeration;
   }
 </pre>
 
-    Note: <code>nextElement()</code> returns the value of type
-    <code>Object</code> and <code>getNth()</code> returns the value of
-    type <code>TreeNode</code>.  You will most likely need to cast it to
-    the type appropriate for the list element. <em>This is one of the
-    very few cases where casting is actually necessary and
-    appropriate</em>.
+    <code>getNth()</code> also returns the element phylum.  The older
+    <code>getElements()</code> <code>Enumeration</code> is still
+    there.
+
+    <p>
+
+    The elements are kept in an array, which grows as elements are
+    appended.  Once a list is complete (when a node is built from it),
+    <code>trim()</code> cuts the array down to the exact length, so the
+    lists of a large AST take no more room than their elements.
 
 */
     
-abstract class ListNode extends TreeNode {
-    private Vector elements;
+abstract class ListNode<T extends TreeNode> extends TreeNode implements Iterable<T> {
+    private static final TreeNode[] EMPTY = new TreeNode[0];
+
+    private TreeNode[] elements;
+    private int length;
 
-    protected ListNode(int lineNumber, Vector elements) {
+    protected ListNode(int lineNumber, TreeNode[] elements) {
 	super(lineNumber);
 	this.elements = elements;
+	this.length = elements.length;
     }
 
     /** Builds a new list node
@@ -90,7 +97,7 @@ abstract class ListNode extends TreeNode {
      * */
     protected ListNode(int lineNumber) {
 	super(lineNumber);
-	elements = new Vector();
+	elements = EMPTY;
     }
 
     /** Creates a deep copy of this list.
@@ -98,12 +105,12 @@ abstract class ListNode extends TreeNode {
      * None of the elements are shared between the lists, e.g. all
      * elements are duplicated (which is what "deep copy" means).
      *
-     * @return a copy of this elements vector
+     * @return a copy of this elements array
      * */
-    protected Vector copyElements() {
-	Vector cp = new Vector();
-	for (int i = 0; i < elements.size(); i++) {
-	    cp.addElement(((TreeNode)elements.elementAt(i)).copy());
+    protected TreeNode[] copyElements() {
+	TreeNode[] cp = new TreeNode[length];
+	for (int i = 0; i < length; i++) {
+	    cp[i] = elements[i].copy();
 	}
 	return cp;
     }
@@ -119,8 +126,12 @@ abstract class ListNode extends TreeNode {
      * @param n the index of the element
      * @return the element
      * */
-    public TreeNode getNth(int n) {
-	return (TreeNode)elements.elementAt(n);
+    @SuppressWarnings("unchecked")
+    public T getNth(int n) {
+	if (n >= length) {
+	    throw new ArrayIndexOutOfBoundsException(n + " >= " + length);
+	}
+	return (T)elements[n];
     }
 
     /** Retreives the length of the list.
@@ -128,15 +139,50 @@ abstract class ListNode extends TreeNode {
      * @return the length of the list
      * */
     public int getLength() {
-	return elements.size();
+	return length;
     }
 
     /** Retreives the elements of the list as Enumeration.
      *
      * @return the elements
      * */
-    public Enumeration getElements() {
-	return elements.elements();
+    public Enumeration<T> getElements() {
+	return new Enumeration<T>() {
+	    private int i = 0;
+
+	    public boolean hasMoreElements() {
+		return i < length;
+	    }
+	    public T nextElement() {
+		if (i >= length) {
+		    throw new NoSuchElementException();
+		}
+		return getNth(i++);
+	    }
+	};
+    }
+
+    /** Returns an iterator over the elements of the list.
+     *
+     * @return the iterator
+     * */
+    public Iterator<T> iterator() {
+	return new Iterator<T>() {
+	    private int i = 0;
+
+	    public boolean hasNext() {
+		return i < length;
+	    }
+	    public T next() {
+		if (i >= length) {
+		    throw new NoSuchElementException();
+		}
+		return getNth(i++);
+	    }
+	    public void remove() {
+		throw new UnsupportedOperationException();
+	    }
+	};
     }
 
     /** Appends an element to the list.
@@ -148,8 +194,21 @@ abstract class ListNode extends TreeNode {
      *
      * @param node a node to append
      * */
-    public void addElement(TreeNode node) {
-	elements.addElement(node);
+    public void addElement(T node) {
+	if (length == elements.length) {
+	    elements = Arrays.copyOf(elements, Math.max(4, 2 * length));
+	}
+	elements[length++] = node;
+    }
+
+    /** Cuts the storage of the list down to its length.  Called when
+     * the list is complete; elements may still be appended after, at
+     * the cost of a copy.
+     * */
+    public void trim() {
+	if (elements.length != length) {
+	    elements = length == 0 ? EMPTY : Arrays.copyOf(elements, length);
+	}
     }
 
     /** Pretty-prints this list to this output stream.
@@ -172,7 +231,7 @@ abstract class ListNode extends TreeNode {
      * @return a string representation
      * */
     public String toString() {
-	return elements.toString();
+	return Arrays.asList(elements).subList(0, length).toString();
     }
 }
 	
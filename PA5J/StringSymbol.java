@@ -35,11 +35,13 @@ class StringSymbol extends AbstractSymbol {
      * is incomplete; you get to finish it up in programming assignment
      * 5.
      * @param stringclasstag the class tag for string object
+     * @param inttable the table of integer constants, which gets the
+     *        length of the string
      * @param s the output stream
      *
      * */
-    public void codeDef(int stringclasstag, PrintStream s) {
-	IntSymbol lensym = (IntSymbol)AbstractTable.inttable.addInt(str.length());
+    public void codeDef(int stringclasstag, IntTable inttable, PrintStream s) {
+	IntSymbol lensym = (IntSymbol)inttable.addInt(str.length());
 	
 	// Add -1 eye catcher
 	s.println(CgenSupport.WORD + "-1");
@@ -0,0 +1,141 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A map from symbols to values, keyed by the index of each symbol in
+ * its string table.
+ *
+ * <p>
+ *
+ * Symbol indices are small dense integers, so they are used directly
+ * as hash codes: keys and values live in two parallel arrays, and a
+ * lookup is usually a single array load with no hashing and no entry
+ * objects.  Collisions are resolved by linear probing.  The table
+ * grows with the number of entries rather than with the largest
+ * index, so maps that hold only a few symbols (e.g. the methods of one
+ * class) stay small.
+ *
+ * <p>
+ *
+ * Because the keys are compared by index, all keys of one map must come
+ * from the same string table.  The iteration order is unspecified: a
+ * key's slot depends on the keys probed before it and on how the table
+ * has grown.  It does not depend on identity hash codes, though, so
+ * the same sequence of puts iterates in the same order from run to
+ * run.
+ *
+ * @see SymbolSet
+ * @see AbstractSymbol
+ */
+class SymbolMap<V> implements Iterable<AbstractSymbol> {
+    private AbstractSymbol[] keys;
+    private Object[] values;
+    private int size;
+
+    /** Creates an empty map. */
+    public SymbolMap() {
+        keys = new AbstractSymbol[16];
+        values = new Object[16];
+    }
+
+    /** Returns the slot holding sym, or the free slot where it belongs. */
+    private int slot(AbstractSymbol sym) {
+        int mask = keys.length - 1;
+        int i = sym.index & mask;
+        while (keys[i] != null && keys[i].index != sym.index) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the value associated with a symbol.
+     *
+     * @param sym the symbol
+     * @return the value, or null if sym is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(AbstractSymbol sym) {
+        return (V) values[slot(sym)];
+    }
+
+    /**
+     * Tests whether a symbol is in the map.
+     *
+     * @param sym the symbol
+     * @return true if sym has a value in the map
+     */
+    public boolean containsKey(AbstractSymbol sym) {
+        return keys[slot(sym)] != null;
+    }
+
+    /**
+     * Associates a value with a symbol, replacing any previous value.
+     *
+     * @param sym the symbol
+     * @param value the value
+     * @return the previous value of sym, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(AbstractSymbol sym, V value) {
+        int i = slot(sym);
+        if (keys[i] == null) {
+            keys[i] = sym;
+            values[i] = value;
+            if (2 * ++size > keys.length) {
+                resize(2 * keys.length);
+            }
+            return null;
+        }
+        V old = (V) values[i];
+        values[i] = value;
+        return old;
+    }
+
+    /** Returns the number of symbols in the map. */
+    public int size() {
+        return size;
+    }
+
+    /** Rebuilds the table with the given number of slots. */
+    private void resize(int length) {
+        AbstractSymbol[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new AbstractSymbol[length];
+        values = new Object[length];
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = slot(oldKeys[j]);
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /** Returns an iterator over the symbols in the map, in no
+     * particular order. */
+    public Iterator<AbstractSymbol> iterator() {
+        return new Iterator<AbstractSymbol>() {
+            private int i = advance(0);
+
+            private int advance(int j) {
+                while (j < keys.length && keys[j] == null) j++;
+                return j;
+            }
+            public boolean hasNext() {
+                return i < keys.length;
+            }
+            public AbstractSymbol next() {
+                if (i >= keys.length) {
+                    throw new NoSuchElementException();
+                }
+                AbstractSymbol sym = keys[i];
+                i = advance(i + 1);
+                return sym;
+            }
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of symbols, keyed by the index of each symbol in its string
+ * table.
+ *
+ * <p>
+ *
+ * This is the set counterpart of <a href="SymbolMap.html">SymbolMap</a>:
+ * the members are kept in an array probed by symbol index, so tests
+ * for membership do no hashing and allocate nothing.  All members of
+ * one set must come from the same string table.  As with SymbolMap,
+ * the iteration order is unspecified.
+ *
+ * @see SymbolMap
+ */
+class SymbolSet implements Iterable<AbstractSymbol> {
+    private AbstractSymbol[] keys;
+    private int size;
+
+    /** Creates an empty set. */
+    public SymbolSet() {
+        keys = new AbstractSymbol[16];
+    }
+
+    /** Returns the slot holding sym, or the free slot where it belongs. */
+    private int slot(AbstractSymbol sym) {
+        int mask = keys.length - 1;
+        int i = sym.index & mask;
+        while (keys[i] != null && keys[i].index != sym.index) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Tests whether a symbol is in the set.
+     *
+     * @param sym the symbol
+     * @return true if sym is a member
+     */
+    public boolean contains(AbstractSymbol sym) {
+        return keys[slot(sym)] != null;
+    }
+
+    /**
+     * Adds a symbol to the set.
+     *
+     * @param sym the symbol
+     * @return true if sym was not a member before
+     */
+    public boolean add(AbstractSymbol sym) {
+        int i = slot(sym);
+        if (keys[i] != null) {
+            return false;
+        }
+        keys[i] = sym;
+        if (2 * ++size > keys.length) {
+            resize(2 * keys.length);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a symbol from the set.
+     *
+     * @param sym the symbol
+     * @return true if sym was a member
+     */
+    public boolean remove(AbstractSymbol sym) {
+        int i = slot(sym);
+        if (keys[i] == null) {
+            return false;
+        }
+        keys[i] = null;
+        size--;
+        // move later members of the same probe run into the hole, so
+        // that every member stays reachable from its home slot
+        int mask = keys.length - 1;
+        for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            AbstractSymbol moved = keys[j];
+            keys[j] = null;
+            keys[slot(moved)] = moved;
+        }
+        return true;
+    }
+
+    /** Returns the number of symbols in the set. */
+    public int size() {
+        return size;
+    }
+
+    /** Rebuilds the table with the given number of slots. */
+    private void resize(int length) {
+        AbstractSymbol[] old = keys;
+        keys = new AbstractSymbol[length];
+        for (int j = 0; j < old.length; j++) {
+            if (old[j] != null) {
+                keys[slot(old[j])] = old[j];
+            }
+        }
+    }
+
+    /** Returns an iterator over the symbols in the set, in no
+     * particular order. */
+    public Iterator<AbstractSymbol> iterator() {
+        return new Iterator<AbstractSymbol>() {
+            private int i = advance(0);
+
+            private int advance(int j) {
+                while (j < keys.length && keys[j] == null) j++;
+                return j;
+            }
+            public boolean hasNext() {
+                return i < keys.length;
+            }
+            public AbstractSymbol next() {
+                if (i >= keys.length) {
+                    throw new NoSuchElementException();
+                }
+                AbstractSymbol sym = keys[i];
+                i = advance(i + 1);
+                return sym;
+            }
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
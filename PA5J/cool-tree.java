@@ -8,9 +8,7 @@
 
 
 
-import java.util.Enumeration;
 import java.io.PrintStream;
-import java.util.Vector;
 
 
 /** Defines simple phylum Program */
@@ -19,8 +17,8 @@ abstract class Program extends TreeNode {
         super(lineNumber);
     }
     public abstract void dump_with_types(PrintStream out, int n);
-    public abstract void semant();
-    public abstract void cgen(PrintStream s);
+    public abstract void semant(CompilationContext ctx);
+    public abstract void cgen(CompilationContext ctx, PrintStream s);
 
 }
 
@@ -42,13 +40,13 @@ abstract class Class_ extends TreeNode {
 /** Defines list phylum Classes
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Classes extends ListNode {
+class Classes extends ListNode<Class_> {
     public final static Class elementClass = Class_.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Classes(int lineNumber, Vector elements) {
+    protected Classes(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Classes" list */
@@ -56,7 +54,7 @@ class Classes extends ListNode {
         super(lineNumber);
     }
     /** Appends "Class_" element to this list */
-    public Classes appendElement(TreeNode elem) {
+    public Classes appendElement(Class_ elem) {
         addElement(elem);
         return this;
     }
@@ -79,13 +77,13 @@ abstract class Feature extends TreeNode {
 /** Defines list phylum Features
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Features extends ListNode {
+class Features extends ListNode<Feature> {
     public final static Class elementClass = Feature.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Features(int lineNumber, Vector elements) {
+    protected Features(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Features" list */
@@ -93,7 +91,7 @@ class Features extends ListNode {
         super(lineNumber);
     }
     /** Appends "Feature" element to this list */
-    public Features appendElement(TreeNode elem) {
+    public Features appendElement(Feature elem) {
         addElement(elem);
         return this;
     }
@@ -116,13 +114,13 @@ abstract class Formal extends TreeNode {
 /** Defines list phylum Formals
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Formals extends ListNode {
+class Formals extends ListNode<Formal> {
     public final static Class elementClass = Formal.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Formals(int lineNumber, Vector elements) {
+    protected Formals(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Formals" list */
@@ -130,7 +128,7 @@ class Formals extends ListNode {
         super(lineNumber);
     }
     /** Appends "Formal" element to this list */
-    public Formals appendElement(TreeNode elem) {
+    public Formals appendElement(Formal elem) {
         addElement(elem);
         return this;
     }
@@ -150,10 +148,9 @@ abstract class Expression extends TreeNode {
     public Expression set_type(AbstractSymbol s) { type = s; return this; } 
     public abstract void dump_with_types(PrintStream out, int n);
     public void dump_type(PrintStream out, int n) {
-        if (type != null)
-            { out.println(Utilities.pad(n) + ": " + type.getString()); }
-        else
-            { out.println(Utilities.pad(n) + ": _no_type"); }
+        out.print(Utilities.pad(n));
+        out.print(": ");
+        out.println(type != null ? type.getString() : "_no_type");
     }
     public abstract void code(PrintStream s);
 
@@ -163,13 +160,13 @@ abstract class Expression extends TreeNode {
 /** Defines list phylum Expressions
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Expressions extends ListNode {
+class Expressions extends ListNode<Expression> {
     public final static Class elementClass = Expression.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Expressions(int lineNumber, Vector elements) {
+    protected Expressions(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Expressions" list */
@@ -177,7 +174,7 @@ class Expressions extends ListNode {
         super(lineNumber);
     }
     /** Appends "Expression" element to this list */
-    public Expressions appendElement(TreeNode elem) {
+    public Expressions appendElement(Expression elem) {
         addElement(elem);
         return this;
     }
@@ -200,13 +197,13 @@ abstract class Case extends TreeNode {
 /** Defines list phylum Cases
     <p>
     See <a href="ListNode.html">ListNode</a> for full documentation. */
-class Cases extends ListNode {
+class Cases extends ListNode<Case> {
     public final static Class elementClass = Case.class;
     /** Returns class of this lists's elements */
     public Class getElementClass() {
         return elementClass;
     }
-    protected Cases(int lineNumber, Vector elements) {
+    protected Cases(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Cases" list */
@@ -214,7 +211,7 @@ class Cases extends ListNode {
         super(lineNumber);
     }
     /** Appends "Case" element to this list */
-    public Cases appendElement(TreeNode elem) {
+    public Cases appendElement(Case elem) {
         addElement(elem);
         return this;
     }
@@ -237,6 +234,7 @@ class program extends Program {
     public program(int lineNumber, Classes a1) {
         super(lineNumber);
         classes = a1;
+        classes.trim();
     }
     public TreeNode copy() {
         return new program(lineNumber, (Classes)classes.copy());
@@ -249,9 +247,10 @@ class program extends Program {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_program");
-        for (Enumeration e = classes.getElements(); e.hasMoreElements(); ) {
-	    ((Class_)e.nextElement()).dump_with_types(out, n + 1);
+        out.print(Utilities.pad(n));
+        out.println("_program");
+        for (Class_ e : classes) {
+	    e.dump_with_types(out, n + 1);
         }
     }
     /** This method is the entry point to the semantic checker.  You will
@@ -269,28 +268,29 @@ class program extends Program {
     	errors. Part (2) can be done in a second stage when you want
 	to test the complete compiler.
     */
-    public void semant() {
+    public void semant(CompilationContext ctx) {
 	/* ClassTable constructor may do some semantic analysis */
-	ClassTable classTable = new ClassTable(classes);
+	ClassTable classTable = new ClassTable(ctx, classes);
 	
 	/* some semantic analysis code may go here */
 
 	if (classTable.errors()) {
-	    System.err.println("Compilation halted due to static semantic errors.");
-	    System.exit(1);
+	    ctx.err.println("Compilation halted due to static semantic errors.");
+	    throw new CompilationHalted(1);
 	}
     }
     /** This method is the entry point to the code generator.  All of the work
       * of the code generator takes place within CgenClassTable constructor.
+      * @param ctx the compilation
       * @param s the output stream 
       * @see CgenClassTable
       * */
-    public void cgen(PrintStream s) 
+    public void cgen(CompilationContext ctx, PrintStream s) 
     {
         // spim wants comments to start with '#'
         s.print("# start of generated code\n");
 
-	CgenClassTable codegen_classtable = new CgenClassTable(classes, s);
+	CgenClassTable codegen_classtable = new CgenClassTable(ctx, classes, s);
 
 	s.print("\n# end of generated code\n");
     }
@@ -319,6 +319,7 @@ class class_ extends Class_ {
         name = a1;
         parent = a2;
         features = a3;
+        features.trim();
         filename = a4;
     }
     public TreeNode copy() {
@@ -335,16 +336,21 @@ class class_ extends Class_ {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_class");
+        out.print(Utilities.pad(n));
+        out.println("_class");
         dump_AbstractSymbol(out, n + 2, name);
         dump_AbstractSymbol(out, n + 2, parent);
-        out.print(Utilities.pad(n + 2) + "\"");
+        out.print(Utilities.pad(n + 2));
+        out.print("\"");
         Utilities.printEscapedString(out, filename.getString());
-        out.println("\"\n" + Utilities.pad(n + 2) + "(");
-        for (Enumeration e = features.getElements(); e.hasMoreElements();) {
-	    ((Feature)e.nextElement()).dump_with_types(out, n + 2);
+        out.print("\"\n");
+        out.print(Utilities.pad(n + 2));
+        out.println("(");
+        for (Feature e : features) {
+	    e.dump_with_types(out, n + 2);
         }
-        out.println(Utilities.pad(n + 2) + ")");
+        out.print(Utilities.pad(n + 2));
+        out.println(")");
     }
     public AbstractSymbol getName()     { return name; }
     public AbstractSymbol getParent()   { return parent; }
@@ -374,6 +380,7 @@ class method extends Feature {
         super(lineNumber);
         name = a1;
         formals = a2;
+        formals.trim();
         return_type = a3;
         expr = a4;
     }
@@ -391,10 +398,11 @@ class method extends Feature {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_method");
+        out.print(Utilities.pad(n));
+        out.println("_method");
         dump_AbstractSymbol(out, n + 2, name);
-        for (Enumeration e = formals.getElements(); e.hasMoreElements();) {
-	    ((Formal)e.nextElement()).dump_with_types(out, n + 2);
+        for (Formal e : formals) {
+	    e.dump_with_types(out, n + 2);
         }
         dump_AbstractSymbol(out, n + 2, return_type);
 	expr.dump_with_types(out, n + 2);
@@ -436,7 +444,8 @@ class attr extends Feature {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_attr");
+        out.print(Utilities.pad(n));
+        out.println("_attr");
         dump_AbstractSymbol(out, n + 2, name);
         dump_AbstractSymbol(out, n + 2, type_decl);
 	init.dump_with_types(out, n + 2);
@@ -474,7 +483,8 @@ class formal extends Formal {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_formal");
+        out.print(Utilities.pad(n));
+        out.println("_formal");
         dump_AbstractSymbol(out, n + 2, name);
         dump_AbstractSymbol(out, n + 2, type_decl);
     }
@@ -515,7 +525,8 @@ class branch extends Case {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_branch");
+        out.print(Utilities.pad(n));
+        out.println("_branch");
         dump_AbstractSymbol(out, n + 2, name);
         dump_AbstractSymbol(out, n + 2, type_decl);
 	expr.dump_with_types(out, n + 2);
@@ -553,7 +564,8 @@ class assign extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_assign");
+        out.print(Utilities.pad(n));
+        out.println("_assign");
         dump_AbstractSymbol(out, n + 2, name);
 	expr.dump_with_types(out, n + 2);
 	dump_type(out, n);
@@ -592,6 +604,7 @@ class static_dispatch extends Expression {
         type_name = a2;
         name = a3;
         actual = a4;
+        actual.trim();
     }
     public TreeNode copy() {
         return new static_dispatch(lineNumber, (Expression)expr.copy(), copy_AbstractSymbol(type_name), copy_AbstractSymbol(name), (Expressions)actual.copy());
@@ -607,15 +620,18 @@ class static_dispatch extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_static_dispatch");
+        out.print(Utilities.pad(n));
+        out.println("_static_dispatch");
 	expr.dump_with_types(out, n + 2);
         dump_AbstractSymbol(out, n + 2, type_name);
         dump_AbstractSymbol(out, n + 2, name);
-        out.println(Utilities.pad(n + 2) + "(");
-        for (Enumeration e = actual.getElements(); e.hasMoreElements();) {
-	    ((Expression)e.nextElement()).dump_with_types(out, n + 2);
+        out.print(Utilities.pad(n + 2));
+        out.println("(");
+        for (Expression e : actual) {
+	    e.dump_with_types(out, n + 2);
         }
-        out.println(Utilities.pad(n + 2) + ")");
+        out.print(Utilities.pad(n + 2));
+        out.println(")");
 	dump_type(out, n);
     }
     /** Generates code for this expression.  This method is to be completed 
@@ -649,6 +665,7 @@ class dispatch extends Expression {
         expr = a1;
         name = a2;
         actual = a3;
+        actual.trim();
     }
     public TreeNode copy() {
         return new dispatch(lineNumber, (Expression)expr.copy(), copy_AbstractSymbol(name), (Expressions)actual.copy());
@@ -663,14 +680,17 @@ class dispatch extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_dispatch");
+        out.print(Utilities.pad(n));
+        out.println("_dispatch");
 	expr.dump_with_types(out, n + 2);
         dump_AbstractSymbol(out, n + 2, name);
-        out.println(Utilities.pad(n + 2) + "(");
-        for (Enumeration e = actual.getElements(); e.hasMoreElements();) {
-	    ((Expression)e.nextElement()).dump_with_types(out, n + 2);
+        out.print(Utilities.pad(n + 2));
+        out.println("(");
+        for (Expression e : actual) {
+	    e.dump_with_types(out, n + 2);
         }
-        out.println(Utilities.pad(n + 2) + ")");
+        out.print(Utilities.pad(n + 2));
+        out.println(")");
 	dump_type(out, n);
     }
     /** Generates code for this expression.  This method is to be completed 
@@ -718,7 +738,8 @@ class cond extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_cond");
+        out.print(Utilities.pad(n));
+        out.println("_cond");
 	pred.dump_with_types(out, n + 2);
 	then_exp.dump_with_types(out, n + 2);
 	else_exp.dump_with_types(out, n + 2);
@@ -765,7 +786,8 @@ class loop extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_loop");
+        out.print(Utilities.pad(n));
+        out.println("_loop");
 	pred.dump_with_types(out, n + 2);
 	body.dump_with_types(out, n + 2);
 	dump_type(out, n);
@@ -798,6 +820,7 @@ class typcase extends Expression {
         super(lineNumber);
         expr = a1;
         cases = a2;
+        cases.trim();
     }
     public TreeNode copy() {
         return new typcase(lineNumber, (Expression)expr.copy(), (Cases)cases.copy());
@@ -811,10 +834,11 @@ class typcase extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_typcase");
+        out.print(Utilities.pad(n));
+        out.println("_typcase");
 	expr.dump_with_types(out, n + 2);
-        for (Enumeration e = cases.getElements(); e.hasMoreElements();) {
-	    ((Case)e.nextElement()).dump_with_types(out, n + 2);
+        for (Case e : cases) {
+	    e.dump_with_types(out, n + 2);
         }
 	dump_type(out, n);
     }
@@ -843,6 +867,7 @@ class block extends Expression {
     public block(int lineNumber, Expressions a1) {
         super(lineNumber);
         body = a1;
+        body.trim();
     }
     public TreeNode copy() {
         return new block(lineNumber, (Expressions)body.copy());
@@ -855,9 +880,10 @@ class block extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_block");
-        for (Enumeration e = body.getElements(); e.hasMoreElements();) {
-	    ((Expression)e.nextElement()).dump_with_types(out, n + 2);
+        out.print(Utilities.pad(n));
+        out.println("_block");
+        for (Expression e : body) {
+	    e.dump_with_types(out, n + 2);
         }
 	dump_type(out, n);
     }
@@ -910,7 +936,8 @@ class let extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_let");
+        out.print(Utilities.pad(n));
+        out.println("_let");
 	dump_AbstractSymbol(out, n + 2, identifier);
 	dump_AbstractSymbol(out, n + 2, type_decl);
 	init.dump_with_types(out, n + 2);
@@ -958,7 +985,8 @@ class plus extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_plus");
+        out.print(Utilities.pad(n));
+        out.println("_plus");
 	e1.dump_with_types(out, n + 2);
 	e2.dump_with_types(out, n + 2);
 	dump_type(out, n);
@@ -1004,7 +1032,8 @@ class sub extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_sub");
+        out.print(Utilities.pad(n));
+        out.println("_sub");
 	e1.dump_with_types(out, n + 2);
 	e2.dump_with_types(out, n + 2);
 	dump_type(out, n);
@@ -1050,7 +1079,8 @@ class mul extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_mul");
+        out.print(Utilities.pad(n));
+        out.println("_mul");
 	e1.dump_with_types(out, n + 2);
 	e2.dump_with_types(out, n + 2);
 	dump_type(out, n);
@@ -1096,7 +1126,8 @@ class divide extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_divide");
+        out.print(Utilities.pad(n));
+        out.println("_divide");
 	e1.dump_with_types(out, n + 2);
 	e2.dump_with_types(out, n + 2);
 	dump_type(out, n);
@@ -1138,7 +1169,8 @@ class neg extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_neg");
+        out.print(Utilities.pad(n));
+        out.println("_neg");
 	e1.dump_with_types(out, n + 2);
 	dump_type(out, n);
     }
@@ -1183,7 +1215,8 @@ class lt extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_lt");
+        out.print(Utilities.pad(n));
+        out.println("_lt");
 	e1.dump_with_types(out, n + 2);
 	e2.dump_with_types(out, n + 2);
 	dump_type(out, n);
@@ -1229,7 +1262,8 @@ class eq extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_eq");
+        out.print(Utilities.pad(n));
+        out.println("_eq");
 	e1.dump_with_types(out, n + 2);
 	e2.dump_with_types(out, n + 2);
 	dump_type(out, n);
@@ -1275,7 +1309,8 @@ class leq extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_leq");
+        out.print(Utilities.pad(n));
+        out.println("_leq");
 	e1.dump_with_types(out, n + 2);
 	e2.dump_with_types(out, n + 2);
 	dump_type(out, n);
@@ -1317,7 +1352,8 @@ class comp extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_comp");
+        out.print(Utilities.pad(n));
+        out.println("_comp");
 	e1.dump_with_types(out, n + 2);
 	dump_type(out, n);
     }
@@ -1358,7 +1394,8 @@ class int_const extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_int");
+        out.print(Utilities.pad(n));
+        out.println("_int");
 	dump_AbstractSymbol(out, n + 2, token);
 	dump_type(out, n);
     }
@@ -1368,7 +1405,7 @@ class int_const extends Expression {
       * */
     public void code(PrintStream s) {
 	CgenSupport.emitLoadInt(CgenSupport.ACC,
-                                (IntSymbol)AbstractTable.inttable.lookup(token.getString()), s);
+                                (IntSymbol)token, s);
     }
 
 }
@@ -1399,7 +1436,8 @@ class bool_const extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_bool");
+        out.print(Utilities.pad(n));
+        out.println("_bool");
 	dump_Boolean(out, n + 2, val);
 	dump_type(out, n);
     }
@@ -1439,8 +1477,10 @@ class string_const extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_string");
-	out.print(Utilities.pad(n + 2) + "\"");
+        out.print(Utilities.pad(n));
+        out.println("_string");
+	out.print(Utilities.pad(n + 2));
+	out.print("\"");
 	Utilities.printEscapedString(out, token.getString());
 	out.println("\"");
 	dump_type(out, n);
@@ -1451,7 +1491,7 @@ class string_const extends Expression {
       * */
     public void code(PrintStream s) {
 	CgenSupport.emitLoadString(CgenSupport.ACC,
-                                   (StringSymbol)AbstractTable.stringtable.lookup(token.getString()), s);
+                                   (StringSymbol)token, s);
     }
 
 }
@@ -1482,7 +1522,8 @@ class new_ extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_new");
+        out.print(Utilities.pad(n));
+        out.println("_new");
 	dump_AbstractSymbol(out, n + 2, type_name);
 	dump_type(out, n);
     }
@@ -1523,7 +1564,8 @@ class isvoid extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_isvoid");
+        out.print(Utilities.pad(n));
+        out.println("_isvoid");
 	e1.dump_with_types(out, n + 2);
 	dump_type(out, n);
     }
@@ -1560,7 +1602,8 @@ class no_expr extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_no_expr");
+        out.print(Utilities.pad(n));
+        out.println("_no_expr");
 	dump_type(out, n);
     }
     /** Generates code for this expression.  This method is to be completed 
@@ -1600,7 +1643,8 @@ class object extends Expression {
     
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
-        out.println(Utilities.pad(n) + "_object");
+        out.print(Utilities.pad(n));
+        out.println("_object");
 	dump_AbstractSymbol(out, n + 2, name);
 	dump_type(out, n);
     }